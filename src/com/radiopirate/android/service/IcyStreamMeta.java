@@ -1,187 +1,326 @@
-package com.radiopirate.android.service;
-
-import java.io.IOException;
-import java.io.InputStream;
-import java.net.URL;
-import java.net.URLConnection;
-import java.util.HashMap;
-import java.util.List;
-import java.util.Map;
-import java.util.regex.Matcher;
-import java.util.regex.Pattern;
-
-import android.util.Log;
-
-/**
- * Get the Title of a stream using the Shoutcast Metadata Protocol From:
- * http://uniqueculture.net/2010/11/stream-metadata-plain-java/
- */
-public class IcyStreamMeta {
-
-    private static final String TAG = "RP - IcyStreamMeta";
-    private URL streamUrl;
-    private Map<String, String> metadata;
-    private boolean isError;
-
-    public IcyStreamMeta(URL streamUrl) {
-        setStreamUrl(streamUrl);
-
-        isError = false;
-    }
-
-    public URL getStreamUrl() {
-        return streamUrl;
-    }
-
-    /**
-     * Get stream title
-     * 
-     * @return String
-     * @throws IOException
-     */
-    public String getStreamTitle() throws IOException {
-        Map<String, String> data = getMetadata();
-
-        if (data == null) {
-            return "";
-        }
-
-        if (!data.containsKey("StreamTitle"))
-            return "";
-
-        return data.get("StreamTitle").trim();
-    }
-
-    /**
-     * Get artist using stream's title
-     * 
-     * @return String
-     * @throws IOException
-     */
-    public String getArtist() throws IOException, StringIndexOutOfBoundsException  {
-        Map<String, String> data = getMetadata();
-        if (data == null || !data.containsKey("StreamTitle"))
-        {
-            return "";
-        }
-        String streamTitle = data.get("StreamTitle");
-        String title = streamTitle.substring(0, streamTitle.indexOf("-"));
-        return title.trim();
-    }
-
-    /**
-     * Get title using stream's title
-     * 
-     * @return String
-     * @throws IOException
-     */
-    public String getTitle() throws IOException, StringIndexOutOfBoundsException {
-        Map<String, String> data = getMetadata();
-
-        if (data == null || !data.containsKey("StreamTitle"))
-        {
-            return "";
-        }
-
-        String streamTitle = data.get("StreamTitle");
-        String artist = streamTitle.substring(streamTitle.indexOf("-") + 1);
-        return artist.trim();
-    }
-
-    public void refreshMeta() throws IOException {
-        retreiveMetadata();
-    }
-
-    private Map<String, String> getMetadata() throws IOException {
-        if (metadata == null) {
-            refreshMeta();
-        }
-
-        return metadata;
-    }
-
-    private void retreiveMetadata() throws IOException {
-        URLConnection con = streamUrl.openConnection();
-        con.setRequestProperty("Icy-MetaData", "1");
-        con.setRequestProperty("Connection", "close");
-        con.connect();
-
-        int metaDataOffset = 0;
-        Map<String, List<String>> headers = con.getHeaderFields();
-        InputStream stream = con.getInputStream();
-
-        if (headers.containsKey("icy-metaint")) {
-            // Headers are sent via HTTP
-            metaDataOffset = Integer.parseInt(headers.get("icy-metaint").get(0));
-        }
-        // else: There would be a way to get it from the stream content, but it is inefficient, and unneeded for our
-        // streams
-
-        // In case no data was sent
-        if (metaDataOffset == 0) {
-            isError = true;
-            Log.e(TAG, "retreiveMetadata - no offset");
-            return;
-        }
-
-        // Read metadata
-        int b;
-        int count = 0;
-        int metaDataLength = 4080; // 4080 is the max length
-        boolean inData = false;
-        StringBuilder metaData = new StringBuilder();
-        // Stream position should be either at the beginning or right after headers
-        while ((b = stream.read()) != -1) {
-            count++;
-
-            // Length of the metadata
-            if (count == metaDataOffset + 1) {
-                metaDataLength = b * 16;
-            }
-
-            if (count > metaDataOffset + 1 && count < (metaDataOffset + metaDataLength)) {
-                inData = true;
-            } else {
-                inData = false;
-            }
-            if (inData) {
-                if (b != 0) {
-                    metaData.append((char) b);
-                }
-            }
-            if (count > (metaDataOffset + metaDataLength)) {
-                break;
-            }
-
-        }
-
-        // Set the data
-        metadata = IcyStreamMeta.parseMetadata(metaData.toString());
-
-        // Close
-        stream.close();
-    }
-
-    public boolean isError() {
-        return isError;
-    }
-
-    private void setStreamUrl(URL streamUrl) {
-        this.metadata = null;
-        this.streamUrl = streamUrl;
-        this.isError = false;
-    }
-
-    public static Map<String, String> parseMetadata(String metaString) {
-        Map<String, String> metadata = new HashMap();
-
-        String[] metaParts = metaString.split(";");
-        for (int i = 0; i < metaParts.length; i++) {
-            String part = metaParts[i].substring(0, metaParts[i].indexOf("="));
-            String songname = metaParts[i].substring(metaParts[i].indexOf("'")+1, metaParts[i].lastIndexOf("'"));
-            metadata.put(part, songname);
-        }
-
-        return metadata;
-    }
-}
+package com.radiopirate.android.service;
+
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.UnsupportedEncodingException;
+import java.net.HttpURLConnection;
+import java.net.URL;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+import android.util.Log;
+
+import com.shinymayhem.radiometadata.SharedHttpClient;
+
+/**
+ * Get the Title of a stream using the Shoutcast Metadata Protocol From:
+ * http://uniqueculture.net/2010/11/stream-metadata-plain-java/
+ */
+public class IcyStreamMeta {
+
+    private static final String TAG = "RP - IcyStreamMeta";
+    // 4080 is the max length, the length byte is multiplied by 16
+    public static final int MAX_METADATA_LENGTH = 4080;
+    private URL streamUrl;
+    private Map<String, String> metadata;
+    private boolean isError;
+    // Reused for skipping audio and holding the metadata block, so a refresh doesn't allocate per byte
+    private final byte[] buffer = new byte[MAX_METADATA_LENGTH];
+    private long bytesRead;
+    private long timeToMetadata;
+
+    public IcyStreamMeta(URL streamUrl) {
+        setStreamUrl(streamUrl);
+
+        isError = false;
+    }
+
+    public URL getStreamUrl() {
+        return streamUrl;
+    }
+
+    /**
+     * Get stream title
+     * 
+     * @return String
+     * @throws IOException
+     */
+    public String getStreamTitle() throws IOException {
+        Map<String, String> data = getMetadata();
+
+        if (data == null) {
+            return "";
+        }
+
+        if (!data.containsKey("StreamTitle"))
+            return "";
+
+        return data.get("StreamTitle").trim();
+    }
+
+    /**
+     * Get artist using stream's title
+     * 
+     * @return String
+     * @throws IOException
+     */
+    public String getArtist() throws IOException, StringIndexOutOfBoundsException  {
+        Map<String, String> data = getMetadata();
+        if (data == null || !data.containsKey("StreamTitle"))
+        {
+            return "";
+        }
+        String streamTitle = data.get("StreamTitle");
+        String title = streamTitle.substring(0, streamTitle.indexOf("-"));
+        return title.trim();
+    }
+
+    /**
+     * Get title using stream's title
+     * 
+     * @return String
+     * @throws IOException
+     */
+    public String getTitle() throws IOException, StringIndexOutOfBoundsException {
+        Map<String, String> data = getMetadata();
+
+        if (data == null || !data.containsKey("StreamTitle"))
+        {
+            return "";
+        }
+
+        String streamTitle = data.get("StreamTitle");
+        String artist = streamTitle.substring(streamTitle.indexOf("-") + 1);
+        return artist.trim();
+    }
+
+    public void refreshMeta() throws IOException {
+        retreiveMetadata();
+    }
+
+    private Map<String, String> getMetadata() throws IOException {
+        if (metadata == null) {
+            refreshMeta();
+        }
+
+        return metadata;
+    }
+
+    private void retreiveMetadata() throws IOException {
+        long start = System.currentTimeMillis();
+        bytesRead = 0;
+        HttpURLConnection con = SharedHttpClient.open(streamUrl.toString());
+        con.setRequestProperty("Icy-MetaData", "1");
+        con.connect();
+
+        int metaDataOffset = 0;
+        Map<String, List<String>> headers = con.getHeaderFields();
+        InputStream stream = con.getInputStream();
+
+        if (headers.containsKey("icy-metaint")) {
+            // Headers are sent via HTTP
+            metaDataOffset = Integer.parseInt(headers.get("icy-metaint").get(0));
+        }
+        // else: There would be a way to get it from the stream content, but it is inefficient, and unneeded for our
+        // streams
+
+        // In case no data was sent
+        if (metaDataOffset == 0) {
+            isError = true;
+            Log.e(TAG, "retreiveMetadata - no offset");
+            stream.close();
+            SharedHttpClient.release(con);
+            return;
+        }
+
+        try {
+            // Stream position should be either at the beginning or right after headers
+            skipFully(stream, metaDataOffset);
+
+            // Length of the metadata
+            int metaDataLength = stream.read();
+            if (metaDataLength < 0) {
+                throw new EOFException("Stream ended before metadata");
+            }
+            bytesRead++;
+            metaDataLength *= 16;
+            readFully(stream, metaDataLength);
+
+            // Set the data
+            metadata = IcyStreamMeta.parseMetadata(buffer, 0, metaDataLength);
+        } finally {
+            // Close, the rest of the audio isn't read so the connection can't be reused
+            stream.close();
+            SharedHttpClient.release(con);
+        }
+
+        timeToMetadata = System.currentTimeMillis() - start;
+        Log.d(TAG, "retreiveMetadata - " + bytesRead + " bytes read, " + timeToMetadata + "ms to metadata");
+    }
+
+    // Skip the audio before the metadata block in bulk
+    private void skipFully(InputStream stream, int count) throws IOException {
+        int remaining = count;
+        while (remaining > 0) {
+            long skipped = stream.skip(remaining);
+            if (skipped <= 0) {
+                // Some streams won't skip, read into the buffer instead
+                skipped = stream.read(buffer, 0, Math.min(remaining, buffer.length));
+                if (skipped < 0) {
+                    throw new EOFException("Stream ended before metadata");
+                }
+            }
+            remaining -= skipped;
+            bytesRead += skipped;
+        }
+    }
+
+    private void readFully(InputStream stream, int count) throws IOException {
+        int read = 0;
+        while (read < count) {
+            int n = stream.read(buffer, read, count - read);
+            if (n < 0) {
+                throw new EOFException("Stream ended inside metadata");
+            }
+            read += n;
+        }
+        bytesRead += count;
+    }
+
+    /**
+     * Bytes read from the stream by the last refresh, including the skipped audio
+     * 
+     * @return long
+     */
+    public long getBytesRead() {
+        return bytesRead;
+    }
+
+    /**
+     * Milliseconds from opening the connection to having the metadata block, for the last refresh
+     * 
+     * @return long
+     */
+    public long getTimeToMetadata() {
+        return timeToMetadata;
+    }
+
+    public boolean isError() {
+        return isError;
+    }
+
+    private void setStreamUrl(URL streamUrl) {
+        this.metadata = null;
+        this.streamUrl = streamUrl;
+        this.isError = false;
+    }
+
+    public static Map<String, String> parseMetadata(String metaString) {
+        try {
+            byte[] data = metaString.getBytes("UTF-8");
+            return parseMetadata(data, 0, data.length);
+        } catch (UnsupportedEncodingException e) {
+            // UTF-8 is always supported
+            return new HashMap<String, String>();
+        }
+    }
+
+    /**
+     * Parse a metadata block like StreamTitle='Artist - Title';StreamUrl=''; in one pass, without splitting
+     * 
+     * @param data metadata block, may be padded with null bytes
+     * @param offset start of the block
+     * @param length length of the block
+     * @return Map of keys and values
+     */
+    public static Map<String, String> parseMetadata(byte[] data, int offset, int length) {
+        Map<String, String> metadata = new HashMap<String, String>();
+        int end = offset + length;
+        int i = offset;
+        while (i < end && data[i] != 0) {
+            // Key runs up to '='
+            int keyStart = i;
+            while (i < end && data[i] != '=' && data[i] != 0) {
+                i++;
+            }
+            if (i >= end || data[i] != '=') {
+                break;
+            }
+            String key = decode(data, keyStart, i - keyStart).trim();
+            i++;
+
+            boolean quoted = i < end && data[i] == '\'';
+            if (quoted) {
+                i++;
+            }
+            int valueStart = i;
+            if (quoted) {
+                // Titles can contain quotes, the value only ends at a quote followed by ';' or the end of the block
+                while (i < end && data[i] != 0
+                        && !(data[i] == '\'' && (i + 1 >= end || data[i + 1] == ';' || data[i + 1] == 0))) {
+                    i++;
+                }
+            } else {
+                while (i < end && data[i] != ';' && data[i] != 0) {
+                    i++;
+                }
+            }
+            int valueEnd = i;
+            if (quoted && i < end && data[i] == '\'') {
+                i++;
+            }
+            if (i < end && data[i] == ';') {
+                i++;
+            }
+            if (key.length() > 0) {
+                metadata.put(key, decode(data, valueStart, valueEnd - valueStart));
+            }
+        }
+
+        return metadata;
+    }
+
+    // Most servers send UTF-8, older ones send Latin-1
+    private static String decode(byte[] data, int offset, int length) {
+        try {
+            return new String(data, offset, length, isUtf8(data, offset, length) ? "UTF-8" : "ISO-8859-1");
+        } catch (UnsupportedEncodingException e) {
+            // Both are always supported
+            return "";
+        }
+    }
+
+    private static boolean isUtf8(byte[] data, int offset, int length) {
+        int end = offset + length;
+        int i = offset;
+        while (i < end) {
+            int b = data[i] & 0xff;
+            int continuation;
+            if (b < 0x80) {
+                continuation = 0;
+            } else if (b >= 0xc2 && b <= 0xdf) {
+                continuation = 1;
+            } else if (b >= 0xe0 && b <= 0xef) {
+                continuation = 2;
+            } else if (b >= 0xf0 && b <= 0xf4) {
+                continuation = 3;
+            } else {
+                return false;
+            }
+            if (i + continuation >= end && continuation > 0) {
+                return false;
+            }
+            for (int j = 1; j <= continuation; j++) {
+                if ((data[i + j] & 0xc0) != 0x80) {
+                    return false;
+                }
+            }
+            i += continuation + 1;
+        }
+        return true;
+    }
+}
@@ -0,0 +1,120 @@
+/*
+ * Copyright (C) 2013 Reese Wilson | Shiny Mayhem
+
+   Licensed under the Apache License, Version 2.0 (the "License");
+   you may not use this file except in compliance with the License.
+   You may obtain a copy of the License at
+
+       http://www.apache.org/licenses/LICENSE-2.0
+
+   Unless required by applicable law or agreed to in writing, software
+   distributed under the License is distributed on an "AS IS" BASIS,
+   WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+   See the License for the specific language governing permissions and
+   limitations under the License.
+*/
+package com.shinymayhem.radiometadata;
+
+import java.net.HttpURLConnection;
+import java.util.HashMap;
+
+/**
+ *
+ * @author Reese Wilson
+ * Remembers the ETag and Last-Modified headers of metadata documents, along with the metadata parsed
+ * from them. Polls send them back as If-None-Match and If-Modified-Since, so when the server answers
+ * 304 Not Modified the previous metadata is reused without downloading or parsing the document again.
+ *
+ */
+public class ConditionalCache {
+    private final HashMap<String, Entry> mEntries = new HashMap<String, Entry>();
+
+    /**
+     * Add validator headers from the last response for this url. Call before connecting
+     * @param url metadata document url
+     * @param conn connection that hasn't been connected yet
+     */
+    public void addValidators(String url, HttpURLConnection conn)
+    {
+        Entry entry;
+        synchronized (mEntries)
+        {
+            entry = mEntries.get(url);
+        }
+        if (entry == null)
+        {
+            return;
+        }
+        if (entry.etag != null)
+        {
+            conn.setRequestProperty("If-None-Match", entry.etag);
+        }
+        if (entry.lastModified != null)
+        {
+            conn.setRequestProperty("If-Modified-Since", entry.lastModified);
+        }
+    }
+
+    /**
+     * @param url metadata document url
+     * @return metadata stored with the validators, or null if there is none
+     */
+    public TrackMetadata getNotModified(String url)
+    {
+        synchronized (mEntries)
+        {
+            Entry entry = mEntries.get(url);
+            return (entry == null) ? null : entry.metadata;
+        }
+    }
+
+    /**
+     * Store the validators of a full response with the metadata parsed from it.
+     * Nothing is stored if the server sent neither header
+     * @param url metadata document url
+     * @param conn connection the document was read from
+     * @param metadata parsed metadata
+     */
+    public void put(String url, HttpURLConnection conn, TrackMetadata metadata)
+    {
+        String etag = conn.getHeaderField("ETag");
+        String lastModified = conn.getHeaderField("Last-Modified");
+        synchronized (mEntries)
+        {
+            if (etag == null && lastModified == null)
+            {
+                mEntries.remove(url);
+            }
+            else
+            {
+                mEntries.put(url, new Entry(etag, lastModified, metadata));
+            }
+        }
+    }
+
+    /**
+     * Forget a url, so the next request downloads the whole document
+     * @param url metadata document url
+     */
+    public void remove(String url)
+    {
+        synchronized (mEntries)
+        {
+            mEntries.remove(url);
+        }
+    }
+
+    private static class Entry
+    {
+        final String etag;
+        final String lastModified;
+        final TrackMetadata metadata;
+
+        Entry(String etag, String lastModified, TrackMetadata metadata)
+        {
+            this.etag = etag;
+            this.lastModified = lastModified;
+            this.metadata = metadata;
+        }
+    }
+}
@@ -0,0 +1,194 @@
+/*
+ * Copyright (C) 2013 Reese Wilson | Shiny Mayhem
+
+   Licensed under the Apache License, Version 2.0 (the "License");
+   you may not use this file except in compliance with the License.
+   You may obtain a copy of the License at
+
+       http://www.apache.org/licenses/LICENSE-2.0
+
+   Unless required by applicable law or agreed to in writing, software
+   distributed under the License is distributed on an "AS IS" BASIS,
+   WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+   See the License for the specific language governing permissions and
+   limitations under the License.
+*/
+package com.shinymayhem.radiometadata;
+
+import java.io.IOException;
+import java.net.HttpURLConnection;
+import java.net.MalformedURLException;
+import java.net.URL;
+import java.util.HashMap;
+
+import org.json.JSONArray;
+import org.json.JSONException;
+import org.json.JSONObject;
+
+import android.util.Log;
+
+/**
+ *
+ * @author Reese Wilson
+ * Reads Icecast's /status-json.xsl, which lists every mount on the server. The page is fetched once per
+ * server per poll window, and each mount's track is looked up in the shared result
+ *
+ */
+public class Icecast implements Parser {
+    public static final boolean LOCAL_LOGV = true;
+    public static final boolean LOCAL_LOGD = true;
+    private static final String TAG = "Icecast";
+
+    private static final String STATUS_PATH = "/status-json.xsl";
+    //busy servers list a lot of mounts
+    private static final int MAX_STATUS_BYTES = 256 * 1024;
+    //stations on the same server polled within this long share a response
+    public static final long STATUS_MAX_AGE = 5000;
+
+    //mount path to current track, for each server
+    private static final SharedFetch<HashMap<String, TrackMetadata>> sStatus =
+            new SharedFetch<HashMap<String, TrackMetadata>>(STATUS_MAX_AGE);
+    private static final SharedFetch.Fetcher<HashMap<String, TrackMetadata>> sFetcher =
+            new SharedFetch.Fetcher<HashMap<String, TrackMetadata>>() {
+        @Override
+        public HashMap<String, TrackMetadata> fetch(String server) throws IOException {
+            return fetchStatus(server);
+        }
+    };
+
+    @Override
+    public ParserClaims getClaims() {
+        //any server can run icecast
+        return null;
+    }
+
+    @Override
+    public boolean parsesUrl(String url) {
+        try {
+            URL streamUrl = new URL(url);
+            return getMounts(streamUrl).containsKey(getMount(streamUrl));
+        } catch (IOException e) {
+            //fail silently
+        }
+        return false;
+    }
+
+    @Override
+    public TrackMetadata getMetadata(String url) {
+        try {
+            URL streamUrl = new URL(url);
+            TrackMetadata track = getMounts(streamUrl).get(getMount(streamUrl));
+            if (track != null)
+            {
+                return track;
+            }
+            if (LOCAL_LOGD) Log.d(TAG, "Mount not listed:" + url);
+        } catch (MalformedURLException e) {
+            Log.i(TAG, "Malformed URL: " + url);
+        } catch (IOException e) {
+            Log.i(TAG, "IO Exception: " + url);
+        }
+        return TrackMetadata.FAILED;
+    }
+
+    private static HashMap<String, TrackMetadata> getMounts(URL streamUrl) throws IOException
+    {
+        String server = streamUrl.getProtocol() + "://" + ParserClaims.getHostKey(streamUrl);
+        return sStatus.get(server, sFetcher);
+    }
+
+    private static String getMount(URL url)
+    {
+        String path = url.getPath();
+        return (path.length() == 0) ? "/" : path;
+    }
+
+    private static HashMap<String, TrackMetadata> fetchStatus(String server) throws IOException
+    {
+        HttpURLConnection conn = SharedHttpClient.open(server + STATUS_PATH);
+        conn.connect();
+        String json = new String(SharedHttpClient.readBody(conn, MAX_STATUS_BYTES), "UTF-8");
+        try {
+            HashMap<String, TrackMetadata> mounts = parseStatus(json);
+            if (LOCAL_LOGV) Log.v(TAG, server + " lists " + String.valueOf(mounts.size()) + " mounts");
+            return mounts;
+        } catch (JSONException e) {
+            throw new IOException("Not an icecast status page: " + server);
+        }
+    }
+
+    /**
+     * @param json body of status-json.xsl
+     * @return track for each mount path
+     * @throws JSONException
+     */
+    static HashMap<String, TrackMetadata> parseStatus(String json) throws JSONException
+    {
+        HashMap<String, TrackMetadata> mounts = new HashMap<String, TrackMetadata>();
+        JSONObject stats = new JSONObject(json).optJSONObject("icestats");
+        if (stats == null)
+        {
+            throw new JSONException("No icestats");
+        }
+        //"source" is an object when there is one mount, and an array when there are more
+        JSONArray sources = stats.optJSONArray("source");
+        if (sources != null)
+        {
+            for (int i = 0; i < sources.length(); i++)
+            {
+                addSource(mounts, sources.optJSONObject(i));
+            }
+        }
+        else
+        {
+            addSource(mounts, stats.optJSONObject("source"));
+        }
+        return mounts;
+    }
+
+    private static void addSource(HashMap<String, TrackMetadata> mounts, JSONObject source)
+    {
+        if (source == null)
+        {
+            return;
+        }
+        String listenUrl = optString(source, "listenurl");
+        if (listenUrl == null)
+        {
+            return;
+        }
+        String mount;
+        try {
+            //the host in listenurl is whatever the server is configured with, only the path is reliable
+            mount = getMount(new URL(listenUrl));
+        } catch (MalformedURLException e) {
+            return;
+        }
+        String title = optString(source, "title");
+        String artist = optString(source, "artist");
+        String album = optString(source, "album");
+        int bitrate = source.optInt("bitrate", TrackMetadata.UNKNOWN);
+        int listeners = source.optInt("listeners", TrackMetadata.UNKNOWN);
+        TrackMetadata track;
+        if (artist != null)
+        {
+            track = new TrackMetadata(artist, title, album, bitrate, listeners);
+        }
+        else
+        {
+            //most sources only send "Artist - Title" as the title
+            track = TrackMetadata.fromStreamTitle(title, album, bitrate, listeners);
+        }
+        mounts.put(mount, track);
+    }
+
+    //optString() turns a json null into "null"
+    private static String optString(JSONObject object, String name)
+    {
+        if (!object.has(name) || object.isNull(name))
+        {
+            return null;
+        }
+        return object.optString(name);
+    }
+}
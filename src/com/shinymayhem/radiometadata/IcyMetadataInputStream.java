@@ -0,0 +1,223 @@
+/*
+ * Copyright (C) 2013 Reese Wilson | Shiny Mayhem
+
+   Licensed under the Apache License, Version 2.0 (the "License");
+   you may not use this file except in compliance with the License.
+   You may obtain a copy of the License at
+
+       http://www.apache.org/licenses/LICENSE-2.0
+
+   Unless required by applicable law or agreed to in writing, software
+   distributed under the License is distributed on an "AS IS" BASIS,
+   WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+   See the License for the specific language governing permissions and
+   limitations under the License.
+*/
+package com.shinymayhem.radiometadata;
+
+import java.io.EOFException;
+import java.io.FilterInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.Map;
+
+import android.util.Log;
+
+import com.radiopirate.android.service.IcyStreamMeta;
+
+/**
+ *
+ * @author Reese Wilson
+ * Wraps a stream that was requested with "Icy-MetaData: 1" and strips the metadata blocks out of it,
+ * so that only audio is returned from read(). Each metadata block is handed to the listener as it arrives.
+ *
+ */
+public class IcyMetadataInputStream extends FilterInputStream {
+    public static final boolean LOCAL_LOGV = true;
+    public static final boolean LOCAL_LOGD = true;
+    private static final String TAG = "IcyMetadataInputStream";
+
+    //length byte is multiplied by 16, so 255 * 16 is the largest block a server can send
+    public static final int MAX_METADATA_LENGTH = 4080;
+
+    /**
+     * Receives metadata found in the stream. Called on the thread that is reading the stream
+     */
+    public interface MetadataListener {
+        /**
+         * @param metadata track from the stream title
+         */
+        public void onMetadata(TrackMetadata metadata);
+    }
+
+    private final int mMetaInt;
+    private int mAudioRemaining;
+    private byte[] mMetaBuffer = new byte[MAX_METADATA_LENGTH];
+    //previous block, to skip parsing when the server repeats it
+    private byte[] mLastBlock = new byte[MAX_METADATA_LENGTH];
+    private int mLastLength = -1;
+    private MetadataListener mListener;
+
+    /**
+     * @param in stream positioned at the first byte after the response headers
+     * @param metaInt value of the icy-metaint response header
+     * @param listener notified when the stream title changes, can be null
+     */
+    public IcyMetadataInputStream(InputStream in, int metaInt, MetadataListener listener)
+    {
+        super(in);
+        if (metaInt <= 0)
+        {
+            throw new IllegalArgumentException("icy-metaint must be positive");
+        }
+        mMetaInt = metaInt;
+        mAudioRemaining = metaInt;
+        mListener = listener;
+    }
+
+    public void setListener(MetadataListener listener)
+    {
+        mListener = listener;
+    }
+
+    @Override
+    public int read() throws IOException
+    {
+        if (mAudioRemaining == 0 && !readMetadata())
+        {
+            return -1;
+        }
+        int b = in.read();
+        if (b >= 0)
+        {
+            mAudioRemaining--;
+        }
+        return b;
+    }
+
+    @Override
+    public int read(byte[] buffer, int offset, int length) throws IOException
+    {
+        if (length == 0)
+        {
+            return 0;
+        }
+        if (mAudioRemaining == 0 && !readMetadata())
+        {
+            return -1;
+        }
+        int read = in.read(buffer, offset, Math.min(length, mAudioRemaining));
+        if (read > 0)
+        {
+            mAudioRemaining -= read;
+        }
+        return read;
+    }
+
+    //the wrapped stream's skip() would not count bytes, so skip by reading
+    @Override
+    public long skip(long count) throws IOException
+    {
+        byte[] buffer = new byte[(int)Math.min(count, 4096)];
+        long skipped = 0;
+        while (skipped < count)
+        {
+            int read = read(buffer, 0, (int)Math.min(buffer.length, count - skipped));
+            if (read < 0)
+            {
+                break;
+            }
+            skipped += read;
+        }
+        return skipped;
+    }
+
+    @Override
+    public int available() throws IOException
+    {
+        return Math.min(in.available(), mAudioRemaining);
+    }
+
+    @Override
+    public boolean markSupported()
+    {
+        return false;
+    }
+
+    /**
+     * Read the length byte and metadata block at the current position
+     * @return false if the end of the stream was reached
+     * @throws IOException
+     */
+    private boolean readMetadata() throws IOException
+    {
+        int length = in.read();
+        if (length < 0)
+        {
+            return false;
+        }
+        length *= 16;
+        int read = 0;
+        while (read < length)
+        {
+            int count = in.read(mMetaBuffer, read, length - read);
+            if (count < 0)
+            {
+                throw new EOFException("Stream ended inside metadata block");
+            }
+            read += count;
+        }
+        mAudioRemaining = mMetaInt;
+        //a zero length block means the metadata hasn't changed
+        if (length > 0)
+        {
+            dispatch(length);
+        }
+        return true;
+    }
+
+    private void dispatch(int length)
+    {
+        //block is padded with null bytes
+        int end = 0;
+        while (end < length && mMetaBuffer[end] != 0)
+        {
+            end++;
+        }
+        if (isSameBlock(end))
+        {
+            return;
+        }
+        //swap buffers instead of copying, the next block is read into the old one
+        byte[] last = mLastBlock;
+        mLastBlock = mMetaBuffer;
+        mMetaBuffer = last;
+        mLastLength = end;
+
+        Map<String, String> fields = IcyStreamMeta.parseMetadata(mLastBlock, 0, end);
+        if (LOCAL_LOGV) Log.v(TAG, "metadata:" + fields.toString());
+        //whole title is the song if there is no dash
+        TrackMetadata track = TrackMetadata.fromStreamTitle(fields.get("StreamTitle"));
+        if (mListener != null)
+        {
+            mListener.onMetadata(track);
+        }
+    }
+
+    private boolean isSameBlock(int length)
+    {
+        if (length != mLastLength)
+        {
+            return false;
+        }
+        for (int i = 0; i < length; i++)
+        {
+            if (mMetaBuffer[i] != mLastBlock[i])
+            {
+                return false;
+            }
+        }
+        return true;
+    }
+
+}
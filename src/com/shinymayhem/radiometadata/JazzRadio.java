@@ -1,99 +1,148 @@
-/*
- * Copyright (C) 2013 Reese Wilson | Shiny Mayhem
-
-   Licensed under the Apache License, Version 2.0 (the "License");
-   you may not use this file except in compliance with the License.
-   You may obtain a copy of the License at
-
-       http://www.apache.org/licenses/LICENSE-2.0
-
-   Unless required by applicable law or agreed to in writing, software
-   distributed under the License is distributed on an "AS IS" BASIS,
-   WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
-   See the License for the specific language governing permissions and
-   limitations under the License.
-*/
-package com.shinymayhem.radiometadata;
-
-import java.io.IOException;
-import java.io.InputStream;
-import java.net.HttpURLConnection;
-import java.net.MalformedURLException;
-import java.net.URL;
-import java.util.Arrays;
-import java.util.HashMap;
-import java.util.List;
-
-import org.xmlpull.v1.XmlPullParserException;
-
-public class JazzRadio implements Parser {
-    
-    private final HashMap<String, String> metadataUrls;
-    {
-        metadataUrls = new HashMap<String, String>();
-        metadataUrls.put("http://jazz-wr14.ice.infomaniak.ch/jazz-wr14-128.mp3", "http://www.jazzradio.fr/winradio/prog18.xml");
-        metadataUrls.put("http://jazz-wr04.ice.infomaniak.ch/jazz-wr04-128.mp3", "http://www.jazzradio.fr/winradio/prog15.xml");
-    }
-
-    @Override
-    public boolean parsesUrl(String url) {
-        if (metadataUrls.containsKey(url))
-        {
-            return true;
-        }
-        return false;
-    }
-    
-    private InputStream getXml(String url) throws MalformedURLException, IOException, IllegalArgumentException
-    {
-        URL metadataUrl;
-        if (!metadataUrls.containsKey(url))
-        {
-            throw new IllegalArgumentException("Url does not exist in the list of parseable metadata URLs");
-        }
-        metadataUrl = new URL(metadataUrls.get(url));
-        HttpURLConnection conn = (HttpURLConnection) metadataUrl.openConnection();
-        conn.setReadTimeout(10000 /* milliseconds */);
-        conn.setConnectTimeout(15000 /* milliseconds */);
-        conn.setRequestMethod("GET");
-        conn.setDoInput(true);
-        // Starts the query
-        conn.connect();
-        return conn.getInputStream();
-    }
-
-    @Override
-    public HashMap<String, String> getMetadata(String url) {
-        HashMap<String, String> map = new HashMap<String, String>();
-        try {
-            InputStream stream = this.getXml(url);
-            XmlParser xmlParser = new XmlParser();
-            
-            String[] tagArray = {"chanteur", "chanson"};
-            List<String> tags = Arrays.asList(tagArray);
-            
-            HashMap<String, String> tagMap = xmlParser.getFirstStringsForTags("prog", tags, stream);
-            
-            //put values in map if the keys exist
-            if (tagMap.containsKey("chanteur"))
-            {
-                map.put(KEY_ARTIST, tagMap.get("chanteur").trim());
-            }
-            if (tagMap.containsKey("chanson"))
-            {
-                map.put(KEY_SONG, tagMap.get("chanson").trim());
-            }
-        } catch (MalformedURLException e) {
-            //fail silently
-            //e.printStackTrace();
-        } catch (IOException e) {
-            //fail silently
-            //e.printStackTrace();
-        } catch (XmlPullParserException e) {
-            //fail silently
-            //e.printStackTrace();
-        }
-        return map;
-    }
-
-}
+/*
+ * Copyright (C) 2013 Reese Wilson | Shiny Mayhem
+
+   Licensed under the Apache License, Version 2.0 (the "License");
+   you may not use this file except in compliance with the License.
+   You may obtain a copy of the License at
+
+       http://www.apache.org/licenses/LICENSE-2.0
+
+   Unless required by applicable law or agreed to in writing, software
+   distributed under the License is distributed on an "AS IS" BASIS,
+   WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+   See the License for the specific language governing permissions and
+   limitations under the License.
+*/
+package com.shinymayhem.radiometadata;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.HttpURLConnection;
+import java.net.MalformedURLException;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+
+import org.xmlpull.v1.XmlPullParserException;
+
+import android.util.Log;
+
+public class JazzRadio implements Parser {
+    public static final boolean LOCAL_LOGV = true;
+    public static final boolean LOCAL_LOGD = true;
+    private static final String TAG = "JazzRadio";
+    
+    //first entry in the document is the song playing now
+    private static final String PATH_ARTIST = "prog/*/chanteur";
+    private static final String PATH_SONG = "prog/*/chanson";
+    private static final List<String> PATHS = Arrays.asList(PATH_ARTIST, PATH_SONG);
+    private static final int MAX_XML_BYTES = 16 * 1024;
+    
+    //validators and last metadata for each xml url, shared so every poll can send them
+    private static final ConditionalCache sConditional = new ConditionalCache();
+    
+    //keyed by ParserClaims.normalizeUrl(), the form the index matches claims in
+    private final HashMap<String, String> metadataUrls;
+    {
+        metadataUrls = new HashMap<String, String>();
+        addMetadataUrl("http://jazz-wr14.ice.infomaniak.ch/jazz-wr14-128.mp3", "http://www.jazzradio.fr/winradio/prog18.xml");
+        addMetadataUrl("http://jazz-wr04.ice.infomaniak.ch/jazz-wr04-128.mp3", "http://www.jazzradio.fr/winradio/prog15.xml");
+    }
+    
+    private void addMetadataUrl(String streamUrl, String metadataUrl)
+    {
+        metadataUrls.put(ParserClaims.normalizeUrl(streamUrl), metadataUrl);
+    }
+
+    @Override
+    public ParserClaims getClaims() {
+        //only the listed streams are handled, so there is nothing to probe
+        ParserClaims claims = new ParserClaims(true);
+        for (String url : metadataUrls.keySet())
+        {
+            claims.addUrl(url);
+        }
+        return claims;
+    }
+
+    @Override
+    public boolean parsesUrl(String url) {
+        if (metadataUrls.containsKey(ParserClaims.normalizeUrl(url)))
+        {
+            return true;
+        }
+        return false;
+    }
+    
+    private HttpURLConnection openXml(String metadataUrl) throws MalformedURLException, IOException
+    {
+        HttpURLConnection conn = SharedHttpClient.open(metadataUrl);
+        //let the server answer 304 if the document hasn't changed since the last poll
+        sConditional.addValidators(metadataUrl, conn);
+        // Starts the query
+        conn.connect();
+        return conn;
+    }
+
+    @Override
+    public TrackMetadata getMetadata(String url) {
+        String metadataUrl = metadataUrls.get(ParserClaims.normalizeUrl(url));
+        if (metadataUrl == null)
+        {
+            if (LOCAL_LOGD) Log.d(TAG, "Url does not exist in the list of parseable metadata URLs");
+            return TrackMetadata.FAILED;
+        }
+        try {
+            HttpURLConnection conn = this.openXml(metadataUrl);
+            if (conn.getResponseCode() == HttpURLConnection.HTTP_NOT_MODIFIED)
+            {
+                SharedHttpClient.discard(conn);
+                TrackMetadata cached = sConditional.getNotModified(metadataUrl);
+                if (cached != null)
+                {
+                    if (LOCAL_LOGV) Log.v(TAG, "Not modified:" + metadataUrl);
+                    return cached;
+                }
+                //nothing to reuse, ask for the whole document next time
+                sConditional.remove(metadataUrl);
+                return TrackMetadata.EMPTY;
+            }
+            if (conn.getResponseCode() != HttpURLConnection.HTTP_OK)
+            {
+                //error pages aren't worth reading, and the cached validators might be what the server didn't like
+                if (LOCAL_LOGD) Log.d(TAG, "HTTP " + String.valueOf(conn.getResponseCode()) + ":" + metadataUrl);
+                SharedHttpClient.release(conn);
+                sConditional.remove(metadataUrl);
+                return TrackMetadata.FAILED;
+            }
+            //the current song is at the top of the document, so stop reading once it is found
+            InputStream stream = SharedHttpClient.getBody(conn);
+            XmlParser xmlParser = new XmlParser();
+            
+            HashMap<String, String> tagMap = xmlParser.getFirstStringsForPaths(PATHS, stream, MAX_XML_BYTES);
+            
+            //missing values are empty
+            TrackMetadata track = new TrackMetadata(tagMap.get(PATH_ARTIST), tagMap.get(PATH_SONG));
+            if (track.isEmpty())
+            {
+                sConditional.remove(metadataUrl);
+            }
+            else
+            {
+                sConditional.put(metadataUrl, conn, track);
+            }
+            return track;
+        } catch (MalformedURLException e) {
+            //fail silently
+            //e.printStackTrace();
+        } catch (IOException e) {
+            //fail silently
+            //e.printStackTrace();
+        } catch (XmlPullParserException e) {
+            //fail silently
+            //e.printStackTrace();
+        }
+        return TrackMetadata.FAILED;
+    }
+
+}
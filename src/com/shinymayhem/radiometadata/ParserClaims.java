@@ -0,0 +1,136 @@
+/*
+ * Copyright (C) 2013 Reese Wilson | Shiny Mayhem
+
+   Licensed under the Apache License, Version 2.0 (the "License");
+   you may not use this file except in compliance with the License.
+   You may obtain a copy of the License at
+
+       http://www.apache.org/licenses/LICENSE-2.0
+
+   Unless required by applicable law or agreed to in writing, software
+   distributed under the License is distributed on an "AS IS" BASIS,
+   WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+   See the License for the specific language governing permissions and
+   limitations under the License.
+*/
+package com.shinymayhem.radiometadata;
+
+import java.net.MalformedURLException;
+import java.net.URL;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Set;
+
+/**
+ *
+ * @author Reese Wilson
+ * Urls, hosts and host + path prefixes that a parser handles without probing.
+ * If the claims are complete, the parser is never probed for other urls
+ *
+ */
+public class ParserClaims {
+    private final Set<String> mUrls = new HashSet<String>();
+    private final Set<String> mHosts = new HashSet<String>();
+    private final List<String[]> mPrefixes = new ArrayList<String[]>();
+    private final boolean mComplete;
+
+    /**
+     * @param complete true if parsesUrl() can't accept anything beyond these claims
+     */
+    public ParserClaims(boolean complete)
+    {
+        mComplete = complete;
+    }
+
+    /**
+     * @param url exact streaming media url
+     * @return this, for chaining
+     */
+    public ParserClaims addUrl(String url)
+    {
+        mUrls.add(normalizeUrl(url));
+        return this;
+    }
+
+    /**
+     * @param host every stream on this host, e.g. "stream.example.com" or "stream.example.com:8000"
+     * @return this, for chaining
+     */
+    public ParserClaims addHost(String host)
+    {
+        mHosts.add(host.toLowerCase(Locale.US));
+        return this;
+    }
+
+    /**
+     * @param host as in addHost()
+     * @param pathPrefix streams on the host whose path starts with this, e.g. "/jazz-"
+     * @return this, for chaining
+     */
+    public ParserClaims addPrefix(String host, String pathPrefix)
+    {
+        mPrefixes.add(new String[] {host.toLowerCase(Locale.US), pathPrefix});
+        return this;
+    }
+
+    public Set<String> getUrls()
+    {
+        return Collections.unmodifiableSet(mUrls);
+    }
+
+    public Set<String> getHosts()
+    {
+        return Collections.unmodifiableSet(mHosts);
+    }
+
+    /**
+     * @return pairs of {host, path prefix}
+     */
+    public List<String[]> getPrefixes()
+    {
+        return Collections.unmodifiableList(mPrefixes);
+    }
+
+    public boolean isComplete()
+    {
+        return mComplete;
+    }
+
+    /**
+     * Lowercase the scheme and host, drop the default port and an empty path, so equivalent urls match
+     * @param url
+     * @return normalized url, or the url unchanged if it can't be parsed
+     */
+    public static String normalizeUrl(String url)
+    {
+        try {
+            URL parsed = new URL(url);
+            String path = parsed.getFile();
+            if (path.equals("/"))
+            {
+                path = "";
+            }
+            return parsed.getProtocol().toLowerCase(Locale.US) + "://" + getHostKey(parsed) + path;
+        } catch (MalformedURLException e) {
+            return url;
+        }
+    }
+
+    /**
+     * @param url
+     * @return lowercase host, with the port if it isn't the default one
+     */
+    public static String getHostKey(URL url)
+    {
+        String host = url.getHost().toLowerCase(Locale.US);
+        int port = url.getPort();
+        if (port != -1 && port != url.getDefaultPort())
+        {
+            host += ":" + String.valueOf(port);
+        }
+        return host;
+    }
+}
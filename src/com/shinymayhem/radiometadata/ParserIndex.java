@@ -0,0 +1,147 @@
+/*
+ * Copyright (C) 2013 Reese Wilson | Shiny Mayhem
+
+   Licensed under the Apache License, Version 2.0 (the "License");
+   you may not use this file except in compliance with the License.
+   You may obtain a copy of the License at
+
+       http://www.apache.org/licenses/LICENSE-2.0
+
+   Unless required by applicable law or agreed to in writing, software
+   distributed under the License is distributed on an "AS IS" BASIS,
+   WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+   See the License for the specific language governing permissions and
+   limitations under the License.
+*/
+package com.shinymayhem.radiometadata;
+
+import java.net.MalformedURLException;
+import java.net.URL;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+
+/**
+ *
+ * @author Reese Wilson
+ * Dispatch table built from each parser's static claims. Claimed urls are matched with hash lookups,
+ * most specific first: exact url, then host + path prefix, then host. Parsers that can accept urls
+ * beyond their claims are kept in a list for ParserProbe, in their original order.
+ *
+ */
+public class ParserIndex {
+    private final HashMap<String, Parser> mUrls = new HashMap<String, Parser>();
+    private final HashMap<String, Parser> mHosts = new HashMap<String, Parser>();
+    //longest prefix first for each host
+    private final HashMap<String, List<PrefixClaim>> mPrefixes = new HashMap<String, List<PrefixClaim>>();
+    private final List<Parser> mProbeParsers = new ArrayList<Parser>();
+
+    /**
+     * @param parsers parsers in priority order. when two parsers claim the same url or host, the first one keeps it
+     */
+    public ParserIndex(List<Parser> parsers)
+    {
+        for (Parser parser : parsers)
+        {
+            ParserClaims claims = parser.getClaims();
+            if (claims == null || !claims.isComplete())
+            {
+                mProbeParsers.add(parser);
+            }
+            if (claims == null)
+            {
+                continue;
+            }
+            for (String url : claims.getUrls())
+            {
+                if (!mUrls.containsKey(url))
+                {
+                    mUrls.put(url, parser);
+                }
+            }
+            for (String host : claims.getHosts())
+            {
+                if (!mHosts.containsKey(host))
+                {
+                    mHosts.put(host, parser);
+                }
+            }
+            for (String[] prefix : claims.getPrefixes())
+            {
+                List<PrefixClaim> list = mPrefixes.get(prefix[0]);
+                if (list == null)
+                {
+                    list = new ArrayList<PrefixClaim>();
+                    mPrefixes.put(prefix[0], list);
+                }
+                list.add(new PrefixClaim(prefix[1], parser));
+            }
+        }
+        //stable sort, so equal length prefixes stay in priority order
+        for (List<PrefixClaim> list : mPrefixes.values())
+        {
+            Collections.sort(list, new Comparator<PrefixClaim>() {
+                @Override
+                public int compare(PrefixClaim lhs, PrefixClaim rhs) {
+                    return rhs.prefix.length() - lhs.prefix.length();
+                }
+            });
+        }
+    }
+
+    /**
+     * Find the parser that claims a url, without any network access
+     * @param url Streaming media url
+     * @return claiming parser, or null if the url has to be probed
+     */
+    public Parser lookup(String url)
+    {
+        Parser parser = mUrls.get(ParserClaims.normalizeUrl(url));
+        if (parser != null)
+        {
+            return parser;
+        }
+        URL parsed;
+        try {
+            parsed = new URL(url);
+        } catch (MalformedURLException e) {
+            return null;
+        }
+        String host = ParserClaims.getHostKey(parsed);
+        List<PrefixClaim> prefixes = mPrefixes.get(host);
+        if (prefixes != null)
+        {
+            String path = parsed.getFile();
+            for (PrefixClaim claim : prefixes)
+            {
+                if (path.startsWith(claim.prefix))
+                {
+                    return claim.parser;
+                }
+            }
+        }
+        return mHosts.get(host);
+    }
+
+    /**
+     * @return parsers that need parsesUrl() for urls nobody claims, in priority order
+     */
+    public List<Parser> getProbeParsers()
+    {
+        return mProbeParsers;
+    }
+
+    private static class PrefixClaim
+    {
+        final String prefix;
+        final Parser parser;
+
+        PrefixClaim(String prefix, Parser parser)
+        {
+            this.prefix = prefix;
+            this.parser = parser;
+        }
+    }
+}
@@ -0,0 +1,213 @@
+/*
+ * Copyright (C) 2013 Reese Wilson | Shiny Mayhem
+
+   Licensed under the Apache License, Version 2.0 (the "License");
+   you may not use this file except in compliance with the License.
+   You may obtain a copy of the License at
+
+       http://www.apache.org/licenses/LICENSE-2.0
+
+   Unless required by applicable law or agreed to in writing, software
+   distributed under the License is distributed on an "AS IS" BASIS,
+   WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+   See the License for the specific language governing permissions and
+   limitations under the License.
+*/
+package com.shinymayhem.radiometadata;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CompletionService;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorCompletionService;
+import java.util.concurrent.Future;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import android.util.Log;
+
+/**
+ *
+ * @author Reese Wilson
+ * Runs Parser.parsesUrl() checks for several parsers at once, so a url that only a later parser handles
+ * doesn't wait for every earlier parser to time out. The list order is still the priority order.
+ *
+ */
+public class ParserProbe {
+    public static final boolean LOCAL_LOGV = true;
+    public static final boolean LOCAL_LOGD = true;
+    private static final String TAG = "ParserProbe";
+
+    private static final int MAX_THREADS = 4;
+    private static final int MAX_QUEUED = 16;
+    //longer than the slowest parser's connect timeout
+    public static final long PROBE_TIMEOUT = 35 * 1000;
+
+    private static final ThreadPoolExecutor sExecutor;
+    static
+    {
+        //when the queue is full, new probes are rejected rather than run on the polling thread
+        sExecutor = new ThreadPoolExecutor(MAX_THREADS, MAX_THREADS, 30, TimeUnit.SECONDS,
+                new LinkedBlockingQueue<Runnable>(MAX_QUEUED), new ProbeThreadFactory(), new ThreadPoolExecutor.AbortPolicy());
+        sExecutor.allowCoreThreadTimeOut(true);
+    }
+
+    private ParserProbe() {}
+
+    /**
+     * Check all parsers at once, and return the first one in list order that parses the url.
+     * Probes of lower priority parsers are cancelled as soon as the winner is known
+     * @param url Streaming media url
+     * @param parsers parsers in priority order
+     * @return parser that handles the url, or null if none do (or the probes timed out)
+     * @throws RejectedExecutionException if too many probes are waiting already, nothing was decided
+     */
+    public static Parser probe(final String url, List<Parser> parsers)
+    {
+        int count = parsers.size();
+        if (count == 0)
+        {
+            return null;
+        }
+        CompletionService<ProbeResult> completion = new ExecutorCompletionService<ProbeResult>(sExecutor);
+        List<Future<ProbeResult>> futures = new ArrayList<Future<ProbeResult>>(count);
+        //a cancelled future can't stop a blocking read, disconnecting the probe's connections does
+        List<SharedHttpClient.Tracker> trackers = new ArrayList<SharedHttpClient.Tracker>(count);
+        try
+        {
+            for (int i = 0; i < count; i++)
+            {
+                final int index = i;
+                final Parser parser = parsers.get(i);
+                final SharedHttpClient.Tracker tracker = new SharedHttpClient.Tracker();
+                futures.add(completion.submit(new Callable<ProbeResult>() {
+                    @Override
+                    public ProbeResult call() {
+                        return runProbe(url, index, parser, tracker);
+                    }
+                }));
+                trackers.add(tracker);
+            }
+        }
+        catch (RejectedExecutionException e)
+        {
+            Log.w(TAG, "Too many probes waiting, not probing " + url);
+            cancel(futures, trackers);
+            throw e;
+        }
+        //null while the probe is running
+        Boolean[] results = new Boolean[count];
+
+        Parser winner = null;
+        int next = 0; //highest priority parser that hasn't been ruled out
+        long deadline = System.currentTimeMillis() + PROBE_TIMEOUT;
+        try
+        {
+            for (int done = 0; done < count; done++)
+            {
+                long remaining = deadline - System.currentTimeMillis();
+                Future<ProbeResult> future = completion.poll(remaining, TimeUnit.MILLISECONDS);
+                if (future == null)
+                {
+                    if (LOCAL_LOGD) Log.d(TAG, "Timed out probing " + url);
+                    break;
+                }
+                ProbeResult result = future.get();
+                results[result.index] = result.parses;
+                //a finished probe only decides the winner when every higher priority probe has said no
+                while (next < count && results[next] != null && !results[next])
+                {
+                    next++;
+                }
+                if (next >= count)
+                {
+                    break;
+                }
+                if (results[next] != null && results[next])
+                {
+                    winner = parsers.get(next);
+                    break;
+                }
+            }
+        }
+        catch (InterruptedException e)
+        {
+            Thread.currentThread().interrupt();
+        }
+        catch (ExecutionException e)
+        {
+            //parser exceptions are caught in the probe itself
+            Log.w(TAG, "Probe failed for " + url);
+        }
+        finally
+        {
+            cancel(futures, trackers);
+        }
+        return winner;
+    }
+
+    private static ProbeResult runProbe(String url, int index, Parser parser, SharedHttpClient.Tracker tracker)
+    {
+        long start = System.currentTimeMillis();
+        boolean parses = false;
+        SharedHttpClient.track(tracker);
+        try
+        {
+            parses = parser.parsesUrl(url);
+        }
+        catch (RuntimeException e)
+        {
+            Log.w(TAG, parser.getClass().getSimpleName() + " probe failed for " + url);
+        }
+        finally
+        {
+            SharedHttpClient.track(null);
+            tracker.finish();
+        }
+        if (LOCAL_LOGV) Log.v(TAG, parser.getClass().getSimpleName() + " probe took " +
+                String.valueOf(System.currentTimeMillis() - start) + "ms:" + String.valueOf(parses));
+        return new ProbeResult(index, parses);
+    }
+
+    //stops the probes that haven't finished, and frees their threads
+    private static void cancel(List<Future<ProbeResult>> futures, List<SharedHttpClient.Tracker> trackers)
+    {
+        for (Future<ProbeResult> future : futures)
+        {
+            future.cancel(true);
+        }
+        for (SharedHttpClient.Tracker tracker : trackers)
+        {
+            tracker.cancel();
+        }
+    }
+
+    private static class ProbeResult
+    {
+        final int index;
+        final boolean parses;
+
+        ProbeResult(int index, boolean parses)
+        {
+            this.index = index;
+            this.parses = parses;
+        }
+    }
+
+    private static class ProbeThreadFactory implements ThreadFactory
+    {
+        private final AtomicInteger mCount = new AtomicInteger(1);
+
+        @Override
+        public Thread newThread(Runnable runnable) {
+            Thread thread = new Thread(runnable, TAG + " #" + mCount.getAndIncrement());
+            thread.setDaemon(true);
+            return thread;
+        }
+    }
+}
@@ -0,0 +1,142 @@
+/*
+ * Copyright (C) 2013 Reese Wilson | Shiny Mayhem
+
+   Licensed under the Apache License, Version 2.0 (the "License");
+   you may not use this file except in compliance with the License.
+   You may obtain a copy of the License at
+
+       http://www.apache.org/licenses/LICENSE-2.0
+
+   Unless required by applicable law or agreed to in writing, software
+   distributed under the License is distributed on an "AS IS" BASIS,
+   WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+   See the License for the specific language governing permissions and
+   limitations under the License.
+*/
+package com.shinymayhem.radiometadata;
+
+import java.io.IOException;
+import java.util.HashMap;
+import java.util.Iterator;
+
+import android.os.SystemClock;
+
+/**
+ *
+ * @author Reese Wilson
+ * Shares one response per key (usually a server) between everyone who asks for it within maxAge.
+ * If a fetch for the key is already running, callers wait for it instead of sending their own request,
+ * so several stations on one server cost a single request per poll window
+ *
+ */
+public class SharedFetch<T> {
+
+    /**
+     * Does the actual request, called at most once at a time for each key
+     */
+    public interface Fetcher<T> {
+        public T fetch(String key) throws IOException;
+    }
+
+    private final long mMaxAge;
+    private final HashMap<String, Slot<T>> mSlots = new HashMap<String, Slot<T>>();
+    //guarded by mSlots
+    private long mLastEviction = 0;
+
+    /**
+     * @param maxAge milliseconds a response is shared for
+     */
+    public SharedFetch(long maxAge)
+    {
+        mMaxAge = maxAge;
+    }
+
+    /**
+     * Get a recent response for the key, fetching it if there is none
+     * @param key
+     * @param fetcher used if there is no recent response
+     * @return response
+     * @throws IOException if the fetch failed. failures aren't shared, the next caller tries again
+     */
+    public T get(String key, Fetcher<T> fetcher) throws IOException
+    {
+        Slot<T> slot;
+        synchronized (mSlots)
+        {
+            long now = SystemClock.elapsedRealtime();
+            if (now - mLastEviction >= mMaxAge)
+            {
+                evictExpired(now);
+                mLastEviction = now;
+            }
+            slot = mSlots.get(key);
+            if (slot == null)
+            {
+                slot = new Slot<T>(now);
+                mSlots.put(key, slot);
+            }
+        }
+        //one fetch per key at a time, other callers for the key wait here and then reuse it
+        synchronized (slot)
+        {
+            if (slot.value != null && SystemClock.elapsedRealtime() - slot.fetched < mMaxAge)
+            {
+                return slot.value;
+            }
+            slot.fetching = true;
+            try
+            {
+                T value = fetcher.fetch(key);
+                slot.value = value;
+                slot.fetched = SystemClock.elapsedRealtime();
+                return value;
+            }
+            finally
+            {
+                slot.fetching = false;
+            }
+        }
+    }
+
+    /**
+     * Drop responses too old to be shared, so keys nobody asks for anymore, like stations
+     * that stopped playing, don't pile up. Called holding mSlots
+     * @param now
+     */
+    private void evictExpired(long now)
+    {
+        Iterator<Slot<T>> slots = mSlots.values().iterator();
+        while (slots.hasNext())
+        {
+            Slot<T> slot = slots.next();
+            if (!slot.fetching && now - slot.fetched >= mMaxAge)
+            {
+                slots.remove();
+            }
+        }
+    }
+
+    /**
+     * Drop every response, e.g. when nothing is playing anymore
+     */
+    public void clear()
+    {
+        synchronized (mSlots)
+        {
+            mSlots.clear();
+        }
+    }
+
+    private static class Slot<T>
+    {
+        T value;
+        //when value was fetched, or when the slot was made. read without the slot's lock when evicting
+        volatile long fetched;
+        volatile boolean fetching = false;
+
+        Slot(long created)
+        {
+            fetched = created;
+        }
+    }
+}
@@ -0,0 +1,275 @@
+/*
+ * Copyright (C) 2013 Reese Wilson | Shiny Mayhem
+
+   Licensed under the Apache License, Version 2.0 (the "License");
+   you may not use this file except in compliance with the License.
+   You may obtain a copy of the License at
+
+       http://www.apache.org/licenses/LICENSE-2.0
+
+   Unless required by applicable law or agreed to in writing, software
+   distributed under the License is distributed on an "AS IS" BASIS,
+   WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+   See the License for the specific language governing permissions and
+   limitations under the License.
+*/
+package com.shinymayhem.radiometadata;
+
+import java.io.ByteArrayOutputStream;
+import java.io.FilterInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InterruptedIOException;
+import java.net.HttpURLConnection;
+import java.net.URL;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ *
+ * @author Reese Wilson
+ * Opens every metadata and format request the same way, so connections to a server are kept alive and
+ * reused between polls. HttpURLConnection keeps a pool of idle connections for each host, but a connection
+ * only goes back to the pool if the request didn't ask for "Connection: close" and its body was read to the end
+ * and closed. Bodies are capped, so a misbehaving server (or a url that turns out to be audio) can't be read forever.
+ *
+ */
+public class SharedHttpClient {
+    public static final int CONNECT_TIMEOUT = 15000;
+    public static final int READ_TIMEOUT = 10000;
+    //metadata documents and playlists are a few kB at most
+    public static final int MAX_RESPONSE_BYTES = 64 * 1024;
+    private static final String USER_AGENT = "Mozilla/5.0";
+    //connections opened by the current thread go here while it is set, so another thread can cancel them
+    private static final ThreadLocal<Tracker> sTracker = new ThreadLocal<Tracker>();
+
+    private SharedHttpClient() {}
+
+    /**
+     * Record connections opened on this thread in a tracker, until track(null).
+     * Interrupting a thread doesn't stop a blocking read, disconnecting does
+     * @param tracker
+     */
+    public static void track(Tracker tracker)
+    {
+        if (tracker == null)
+        {
+            sTracker.remove();
+        }
+        else
+        {
+            sTracker.set(tracker);
+        }
+    }
+
+    /**
+     * Create a keep-alive GET request with the shared timeouts. Request properties can still be added before connecting
+     * @param url
+     * @return connection that hasn't been connected yet
+     * @throws IOException
+     */
+    public static HttpURLConnection open(String url) throws IOException
+    {
+        HttpURLConnection conn = (HttpURLConnection) new URL(url).openConnection();
+        conn.setConnectTimeout(CONNECT_TIMEOUT);
+        conn.setReadTimeout(READ_TIMEOUT);
+        conn.setRequestMethod("GET");
+        conn.setDoInput(true);
+        conn.setRequestProperty("User-Agent", USER_AGENT);
+        Tracker tracker = sTracker.get();
+        if (tracker != null)
+        {
+            tracker.add(conn);
+        }
+        return conn;
+    }
+
+    /**
+     * @param conn connected request
+     * @return response body, that fails with an IOException once more than MAX_RESPONSE_BYTES are read
+     * @throws IOException
+     */
+    public static InputStream getBody(HttpURLConnection conn) throws IOException
+    {
+        return getBody(conn, MAX_RESPONSE_BYTES);
+    }
+
+    /**
+     * @param conn connected request
+     * @param maxBytes cap for responses that can be larger than usual, like a server's status page
+     * @return response body, that fails with an IOException once more than maxBytes are read
+     * @throws IOException
+     */
+    public static InputStream getBody(HttpURLConnection conn, int maxBytes) throws IOException
+    {
+        return new CappedInputStream(conn.getInputStream(), maxBytes);
+    }
+
+    /**
+     * Read the whole body and close it, returning the connection to the pool
+     * @param conn connected request
+     * @return body bytes
+     * @throws IOException if the body is larger than MAX_RESPONSE_BYTES, or reading fails
+     */
+    public static byte[] readBody(HttpURLConnection conn) throws IOException
+    {
+        return readBody(conn, MAX_RESPONSE_BYTES);
+    }
+
+    /**
+     * Read the whole body and close it, returning the connection to the pool
+     * @param conn connected request
+     * @param maxBytes cap for responses that can be larger than usual
+     * @return body bytes
+     * @throws IOException if the body is larger than maxBytes, or reading fails
+     */
+    public static byte[] readBody(HttpURLConnection conn, int maxBytes) throws IOException
+    {
+        InputStream in = null;
+        try
+        {
+            in = getBody(conn, maxBytes);
+            ByteArrayOutputStream out = new ByteArrayOutputStream(4096);
+            byte[] buffer = new byte[4096];
+            int read;
+            while ((read = in.read(buffer)) != -1)
+            {
+                out.write(buffer, 0, read);
+            }
+            in.close();
+            in = null;
+            return out.toByteArray();
+        }
+        catch (IOException e)
+        {
+            //connection is in an unknown state, don't let it back in the pool
+            conn.disconnect();
+            throw e;
+        }
+        finally
+        {
+            if (in != null)
+            {
+                in.close();
+            }
+        }
+    }
+
+    /**
+     * Read and throw away a response whose body isn't needed, e.g. a probe or 304, so the connection can be reused
+     * @param conn connected request
+     */
+    public static void discard(HttpURLConnection conn)
+    {
+        try {
+            readBody(conn);
+        } catch (IOException e) {
+            //readBody disconnected it
+        }
+    }
+
+    /**
+     * Close a response that won't be read to the end, like an audio stream.
+     * The connection can't be reused, so it is closed instead of being put back in the pool
+     * @param conn
+     */
+    public static void release(HttpURLConnection conn)
+    {
+        if (conn != null)
+        {
+            conn.disconnect();
+        }
+    }
+
+    /**
+     * Connections opened by one piece of work, e.g. a probe, that can be cancelled from another thread
+     */
+    public static class Tracker
+    {
+        private final List<HttpURLConnection> mConnections = new ArrayList<HttpURLConnection>();
+        private boolean mCancelled = false;
+        private boolean mFinished = false;
+
+        synchronized void add(HttpURLConnection conn) throws InterruptedIOException
+        {
+            if (mCancelled)
+            {
+                throw new InterruptedIOException("Cancelled");
+            }
+            if (!mFinished)
+            {
+                mConnections.add(conn);
+            }
+        }
+
+        /**
+         * The work is done. Its connections are left alone from now on, so the pooled ones stay usable
+         */
+        public synchronized void finish()
+        {
+            mFinished = true;
+            mConnections.clear();
+        }
+
+        /**
+         * Disconnect every connection the work has open, and fail any it opens later
+         */
+        public synchronized void cancel()
+        {
+            if (mFinished)
+            {
+                return;
+            }
+            mCancelled = true;
+            for (HttpURLConnection conn : mConnections)
+            {
+                conn.disconnect();
+            }
+            mConnections.clear();
+        }
+    }
+
+    private static class CappedInputStream extends FilterInputStream
+    {
+        private final long mCap;
+        private long mRemaining;
+
+        CappedInputStream(InputStream in, long cap)
+        {
+            super(in);
+            mCap = cap;
+            mRemaining = cap;
+        }
+
+        @Override
+        public int read() throws IOException
+        {
+            int b = in.read();
+            if (b >= 0)
+            {
+                count(1);
+            }
+            return b;
+        }
+
+        @Override
+        public int read(byte[] buffer, int offset, int length) throws IOException
+        {
+            int read = in.read(buffer, offset, length);
+            if (read > 0)
+            {
+                count(read);
+            }
+            return read;
+        }
+
+        private void count(int read) throws IOException
+        {
+            mRemaining -= read;
+            if (mRemaining < 0)
+            {
+                throw new IOException("Response larger than " + String.valueOf(mCap) + " bytes");
+            }
+        }
+    }
+}
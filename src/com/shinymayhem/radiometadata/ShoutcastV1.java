@@ -1,134 +1,189 @@
-/*
- * Copyright (C) 2013 Reese Wilson | Shiny Mayhem
-
-   Licensed under the Apache License, Version 2.0 (the "License");
-   you may not use this file except in compliance with the License.
-   You may obtain a copy of the License at
-
-       http://www.apache.org/licenses/LICENSE-2.0
-
-   Unless required by applicable law or agreed to in writing, software
-   distributed under the License is distributed on an "AS IS" BASIS,
-   WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
-   See the License for the specific language governing permissions and
-   limitations under the License.
-*/
-package com.shinymayhem.radiometadata;
-
-import java.io.IOException;
-import java.io.InputStreamReader;
-import java.io.Reader;
-import java.net.HttpURLConnection;
-import java.net.MalformedURLException;
-import java.net.URL;
-import java.net.URLConnection;
-import java.util.HashMap;
-import java.util.regex.Matcher;
-import java.util.regex.Pattern;
-
-import android.util.Log;
-
-public class ShoutcastV1 implements Parser {
-    public static final boolean LOCAL_LOGV = true;
-    public static final boolean LOCAL_LOGD = true;
-    private static final String TAG = "ShoutcastV1";
-    //protected ActivityLogger mLogger = new ActivityLogger();
-    
-    @Override
-    public boolean parsesUrl(String url) {
-        
-        try {
-            URL metadataUrl = new URL(url + "/7.html");
-            HttpURLConnection urlc = (HttpURLConnection) metadataUrl.openConnection();
-            urlc.setRequestProperty("User-Agent", "Mozilla/5.0");
-            urlc.setRequestProperty("Connection", "close");
-            urlc.setConnectTimeout(30 * 1000); // Thirty seconds timeout in milliseconds
-            urlc.connect();
-            if (urlc.getResponseCode() == 200) { // Good response
-                return true;
-            }
-        } catch (IOException e) {
-            //fail silently
-        }
-//      if (url.equals("http://streamplus17.leonex.de:39060"))
-//      {
-//          return true;
-//      }
-        return false;
-    }
-    
-    @Override
-    public HashMap<String, String> getMetadata(String url)
-    {
-        
-        String info;
-        HashMap<String, String> map = new HashMap<String, String>();
-        try
-        {
-            info = this.getInfo(url);
-            map.put(Parser.KEY_SONG, info); //default song to whole info string if no dash
-            String artist = info.substring(0, info.indexOf("-"));
-            String song = info.substring(info.indexOf("-") + 1);
-            map.put(Parser.KEY_ARTIST, artist.trim());
-            map.put(Parser.KEY_SONG, song.trim());
-        }
-        catch (StringIndexOutOfBoundsException e)
-        {
-            //no "-" found in info string
-            
-            if (LOCAL_LOGD) Log.d(TAG, "No dash found in metadata string");
-        } catch (MalformedURLException e) {
-            Log.i(TAG, "Malformed URL: " + url);
-        } catch (IOException e) {
-            Log.i(TAG, "IO Exception: " + url);
-        }
-        
-        return map;
-    }
-
-    private String getInfo(String url) throws MalformedURLException, IOException
-    {
-        String response = "";
-        
-        URL metadataUrl;
-        
-        metadataUrl = new URL(url + "/7.html");
-        URLConnection connection = metadataUrl.openConnection();
-        connection.setRequestProperty("User-Agent", "Mozilla/5.0");
-
-        Reader streamReader = new InputStreamReader(connection.getInputStream());
-        StringBuilder stringBuffer = new StringBuilder();
-        int ch;
-        while (true) {
-            ch = streamReader.read();
-
-            if (ch < 0)
-                break;
-
-            stringBuffer.append((char) ch);
-        }
-
-        response = stringBuffer.toString();
-        if (LOCAL_LOGD) Log.d(TAG, "7.html:" + response);
-        
-        String info = "";
-        Pattern pattern = Pattern.compile("^.*<body>(.*)</body>.*$");
-        Matcher matcher;
-        matcher = pattern.matcher(response);
-        if (matcher.find())
-        {
-            String content = matcher.group(1).trim();
-            String[] fields = content.split(",", 7);
-            info = fields[fields.length-1];
-            if (LOCAL_LOGV) Log.v(TAG, "content:" + content); 
-        }
-        else
-        {
-            if (LOCAL_LOGV) Log.v(TAG, "body pattern not found");
-        }
-        return info;
-    }
-    
-    
-    
-}
+/*
+ * Copyright (C) 2013 Reese Wilson | Shiny Mayhem
+
+   Licensed under the Apache License, Version 2.0 (the "License");
+   you may not use this file except in compliance with the License.
+   You may obtain a copy of the License at
+
+       http://www.apache.org/licenses/LICENSE-2.0
+
+   Unless required by applicable law or agreed to in writing, software
+   distributed under the License is distributed on an "AS IS" BASIS,
+   WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+   See the License for the specific language governing permissions and
+   limitations under the License.
+*/
+package com.shinymayhem.radiometadata;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.HttpURLConnection;
+import java.net.MalformedURLException;
+
+import android.util.Log;
+
+public class ShoutcastV1 implements Parser {
+    public static final boolean LOCAL_LOGV = true;
+    public static final boolean LOCAL_LOGD = true;
+    private static final String TAG = "ShoutcastV1";
+    
+    //7.html is usually under 300 bytes, never read more than this
+    public static final int MAX_PAGE_BYTES = 4096;
+    private static final byte[] BODY_OPEN = {'<', 'b', 'o', 'd', 'y', '>'};
+    //current listeners, status, peak listeners, max listeners, unique listeners, bitrate
+    private static final int FIELDS_BEFORE_TITLE = 6;
+    //read chunk and field buffers for scanInfo(), kept by each polling thread instead of allocated every poll
+    private static final ThreadLocal<byte[][]> sScanBuffers = new ThreadLocal<byte[][]>() {
+        @Override
+        protected byte[][] initialValue() {
+            return new byte[][] {new byte[512], new byte[128]};
+        }
+    };
+    //protected ActivityLogger mLogger = new ActivityLogger();
+    
+    @Override
+    public boolean parsesUrl(String url) {
+        
+        try {
+            HttpURLConnection urlc = SharedHttpClient.open(url + "/7.html");
+            urlc.connect();
+            int code = urlc.getResponseCode();
+            //read the small page anyway, so the connection is warm for the first poll
+            SharedHttpClient.discard(urlc);
+            if (code == 200) { // Good response
+                return true;
+            }
+        } catch (IOException e) {
+            //fail silently
+        }
+//      if (url.equals("http://streamplus17.leonex.de:39060"))
+//      {
+//          return true;
+//      }
+        return false;
+    }
+    
+    @Override
+    public ParserClaims getClaims() {
+        //any server can run shoutcast, only a request to 7.html can tell
+        return null;
+    }
+    
+    @Override
+    public TrackMetadata getMetadata(String url)
+    {
+        try
+        {
+            return TrackMetadata.fromStreamTitle(this.getInfo(url));
+        } catch (MalformedURLException e) {
+            Log.i(TAG, "Malformed URL: " + url);
+        } catch (IOException e) {
+            Log.i(TAG, "IO Exception: " + url);
+        }
+        return TrackMetadata.FAILED;
+    }
+
+    private String getInfo(String url) throws MalformedURLException, IOException
+    {
+        HttpURLConnection connection = SharedHttpClient.open(url + "/7.html");
+        InputStream in = null;
+        String info;
+        try
+        {
+            in = SharedHttpClient.getBody(connection);
+            info = scanInfo(in, MAX_PAGE_BYTES);
+            //read whatever is left after </body>, so the connection goes back to the pool
+            SharedHttpClient.discard(connection);
+        }
+        catch (IOException e)
+        {
+            SharedHttpClient.release(connection);
+            throw e;
+        }
+        finally
+        {
+            if (in != null)
+            {
+                in.close();
+            }
+        }
+        if (info == null)
+        {
+            if (LOCAL_LOGV) Log.v(TAG, "body not found");
+            return "";
+        }
+        if (LOCAL_LOGD) Log.d(TAG, "7.html title:" + info);
+        return info;
+    }
+    
+    /**
+     * Find the title in a 7.html page in one pass, without reading the whole page first.
+     * The body is "listeners,status,peak,max,unique,bitrate,title", so the scanner skips to &lt;body&gt;,
+     * skips six fields and takes the rest up to the next tag. If there are fewer fields, the last one is used
+     * @param in 7.html response body
+     * @param maxBytes stop reading after this many bytes
+     * @return title, untrimmed, or null if no body was found
+     * @throws IOException
+     */
+    static String scanInfo(InputStream in, int maxBytes) throws IOException
+    {
+        byte[][] buffers = sScanBuffers.get();
+        byte[] chunk = buffers[0];
+        byte[] field = buffers[1];
+        int length = 0; //bytes in the current field
+        int matched = 0; //bytes of <body> matched so far
+        boolean inBody = false;
+        int fields = 0; //fields skipped
+        int total = 0;
+        int read;
+        while (total < maxBytes && (read = in.read(chunk, 0, Math.min(chunk.length, maxBytes - total))) != -1)
+        {
+            total += read;
+            for (int i = 0; i < read; i++)
+            {
+                int b = chunk[i];
+                if (!inBody)
+                {
+                    //case insensitive, only letters are affected by the lowercase bit
+                    int lower = (b >= 'A' && b <= 'Z') ? b | 0x20 : b;
+                    if (lower == BODY_OPEN[matched])
+                    {
+                        matched++;
+                        if (matched == BODY_OPEN.length)
+                        {
+                            inBody = true;
+                        }
+                    }
+                    else
+                    {
+                        matched = (b == '<') ? 1 : 0;
+                    }
+                }
+                else if (b == '<')
+                {
+                    //start of </body>
+                    return new String(field, 0, length, "UTF-8");
+                }
+                else if (b == ',' && fields < FIELDS_BEFORE_TITLE)
+                {
+                    fields++;
+                    length = 0;
+                }
+                else
+                {
+                    if (length == field.length)
+                    {
+                        byte[] larger = new byte[field.length * 2];
+                        System.arraycopy(field, 0, larger, 0, length);
+                        field = larger;
+                        buffers[1] = larger;
+                    }
+                    field[length++] = (byte)b;
+                }
+            }
+        }
+        //page ended or was cut off before </body>
+        return inBody ? new String(field, 0, length, "UTF-8") : null;
+    }
+    
+}
@@ -0,0 +1,271 @@
+/*
+ * Copyright (C) 2013 Reese Wilson | Shiny Mayhem
+
+   Licensed under the Apache License, Version 2.0 (the "License");
+   you may not use this file except in compliance with the License.
+   You may obtain a copy of the License at
+
+       http://www.apache.org/licenses/LICENSE-2.0
+
+   Unless required by applicable law or agreed to in writing, software
+   distributed under the License is distributed on an "AS IS" BASIS,
+   WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+   See the License for the specific language governing permissions and
+   limitations under the License.
+*/
+package com.shinymayhem.radiometadata;
+
+import java.io.IOException;
+import java.net.HttpURLConnection;
+import java.net.MalformedURLException;
+import java.net.URL;
+import java.util.HashMap;
+
+import org.json.JSONArray;
+import org.json.JSONException;
+import org.json.JSONObject;
+
+import android.os.SystemClock;
+import android.util.Log;
+
+/**
+ *
+ * @author Reese Wilson
+ * Reads Shoutcast v2 statistics. A v2 server can carry several streams, told apart by stream id (sid).
+ * /statistics?json=1 lists all of them in one response, which is shared by every station on the server
+ * for a poll window. Servers that don't allow it are asked for /stats?sid=N&json=1 for the one stream instead
+ *
+ */
+public class ShoutcastV2 implements Parser {
+    public static final boolean LOCAL_LOGV = true;
+    public static final boolean LOCAL_LOGD = true;
+    private static final String TAG = "ShoutcastV2";
+
+    private static final String STATISTICS_PATH = "/statistics?json=1";
+    private static final String STATS_PATH = "/stats?json=1&sid=";
+    private static final int MAX_STATS_BYTES = 128 * 1024;
+    //stations on the same server polled within this long share a response
+    public static final long STATS_MAX_AGE = 5000;
+    private static final int DEFAULT_SID = 1;
+
+    //stream id to current track, for each server
+    private static final SharedFetch<HashMap<Integer, TrackMetadata>> sStatistics =
+            new SharedFetch<HashMap<Integer, TrackMetadata>>(STATS_MAX_AGE);
+    private static final SharedFetch.Fetcher<HashMap<Integer, TrackMetadata>> sStatisticsFetcher =
+            new SharedFetch.Fetcher<HashMap<Integer, TrackMetadata>>() {
+        @Override
+        public HashMap<Integer, TrackMetadata> fetch(String server) throws IOException {
+            return parseStatistics(fetchJson(server + STATISTICS_PATH));
+        }
+    };
+    //servers that refuse the statistics page or don't have one, and when to try it again
+    private static final HashMap<String, Long> sNoStatistics = new HashMap<String, Long>();
+    private static final long NO_STATISTICS_TTL = 30 * 60 * 1000;
+    //single stream fallback, keyed by server and sid
+    private static final SharedFetch<TrackMetadata> sStats = new SharedFetch<TrackMetadata>(STATS_MAX_AGE);
+    private static final SharedFetch.Fetcher<TrackMetadata> sStatsFetcher = new SharedFetch.Fetcher<TrackMetadata>() {
+        @Override
+        public TrackMetadata fetch(String statsUrl) throws IOException {
+            return parseStream(fetchJson(statsUrl));
+        }
+    };
+
+    @Override
+    public ParserClaims getClaims() {
+        //any server can run shoutcast v2
+        return null;
+    }
+
+    @Override
+    public boolean parsesUrl(String url) {
+        try {
+            return getTrack(new URL(url)) != null;
+        } catch (IOException e) {
+            //fail silently
+        }
+        return false;
+    }
+
+    @Override
+    public TrackMetadata getMetadata(String url) {
+        try {
+            TrackMetadata track = getTrack(new URL(url));
+            if (track != null)
+            {
+                return track;
+            }
+            if (LOCAL_LOGD) Log.d(TAG, "Stream not listed:" + url);
+        } catch (MalformedURLException e) {
+            Log.i(TAG, "Malformed URL: " + url);
+        } catch (IOException e) {
+            Log.i(TAG, "IO Exception: " + url);
+        }
+        return TrackMetadata.FAILED;
+    }
+
+    /**
+     * @param streamUrl
+     * @return track, or null if the server doesn't list the stream
+     * @throws IOException if neither statistics page could be read
+     */
+    private static TrackMetadata getTrack(URL streamUrl) throws IOException
+    {
+        String server = streamUrl.getProtocol() + "://" + ParserClaims.getHostKey(streamUrl);
+        int sid = getSid(streamUrl);
+        if (!hasNoStatistics(server))
+        {
+            try {
+                return sStatistics.get(server, sStatisticsFetcher).get(sid);
+            } catch (NoStatisticsException e) {
+                //statistics can be limited to admins, the public per-stream page still works
+                if (LOCAL_LOGV) Log.v(TAG, "No statistics for " + server + ", asking for sid " + String.valueOf(sid));
+                synchronized (sNoStatistics)
+                {
+                    sNoStatistics.put(server, SystemClock.elapsedRealtime() + NO_STATISTICS_TTL);
+                }
+            } catch (IOException e) {
+                //timeouts and server errors pass, try the statistics again next poll
+                if (LOCAL_LOGV) Log.v(TAG, "Statistics failed for " + server + ", asking for sid " + String.valueOf(sid));
+            }
+        }
+        return sStats.get(server + STATS_PATH + String.valueOf(sid), sStatsFetcher);
+    }
+
+    private static boolean hasNoStatistics(String server)
+    {
+        synchronized (sNoStatistics)
+        {
+            Long until = sNoStatistics.get(server);
+            if (until == null)
+            {
+                return false;
+            }
+            if (until <= SystemClock.elapsedRealtime())
+            {
+                sNoStatistics.remove(server);
+                return false;
+            }
+            return true;
+        }
+    }
+
+    /**
+     * Find the stream id in urls like /stream/2/, /stream?sid=2 or /;stream.nsv?sid=2
+     * @param url
+     * @return stream id, 1 if the url doesn't say
+     */
+    static int getSid(URL url)
+    {
+        String query = url.getQuery();
+        if (query != null)
+        {
+            for (String param : query.split("&"))
+            {
+                if (param.startsWith("sid="))
+                {
+                    return parseSid(param.substring(4));
+                }
+            }
+        }
+        String path = url.getPath();
+        if (path.startsWith("/stream/"))
+        {
+            int end = path.indexOf('/', 8);
+            return parseSid(path.substring(8, end < 0 ? path.length() : end));
+        }
+        return DEFAULT_SID;
+    }
+
+    private static int parseSid(String value)
+    {
+        try {
+            return Integer.parseInt(value);
+        } catch (NumberFormatException e) {
+            return DEFAULT_SID;
+        }
+    }
+
+    /**
+     * @param url
+     * @return response
+     * @throws NoStatisticsException if the page is refused, missing, or isn't json
+     * @throws IOException for other failures, which might not happen next time
+     */
+    private static JSONObject fetchJson(String url) throws IOException
+    {
+        HttpURLConnection conn = SharedHttpClient.open(url);
+        conn.connect();
+        int code = conn.getResponseCode();
+        if (code != HttpURLConnection.HTTP_OK)
+        {
+            SharedHttpClient.release(conn);
+            if (code == HttpURLConnection.HTTP_UNAUTHORIZED || code == HttpURLConnection.HTTP_FORBIDDEN
+                    || code == HttpURLConnection.HTTP_NOT_FOUND)
+            {
+                throw new NoStatisticsException("HTTP " + String.valueOf(code) + ": " + url);
+            }
+            throw new IOException("HTTP " + String.valueOf(code) + ": " + url);
+        }
+        String json = new String(SharedHttpClient.readBody(conn, MAX_STATS_BYTES), "UTF-8");
+        try {
+            return new JSONObject(json);
+        } catch (JSONException e) {
+            throw new NoStatisticsException("Not a shoutcast v2 statistics page: " + url);
+        }
+    }
+
+    /**
+     * @param statistics body of /statistics?json=1
+     * @return track for each stream id, TrackMetadata.EMPTY for streams without a song
+     * @throws NoStatisticsException if it isn't a statistics page
+     */
+    static HashMap<Integer, TrackMetadata> parseStatistics(JSONObject statistics) throws IOException
+    {
+        JSONArray streams = statistics.optJSONArray("streams");
+        if (streams == null)
+        {
+            throw new NoStatisticsException("No streams");
+        }
+        HashMap<Integer, TrackMetadata> tracks = new HashMap<Integer, TrackMetadata>();
+        for (int i = 0; i < streams.length(); i++)
+        {
+            JSONObject stream = streams.optJSONObject(i);
+            if (stream != null)
+            {
+                //an idle stream has no song, that shouldn't fail its neighbours on the server
+                TrackMetadata track = stream.has("songtitle") ? parseStream(stream) : TrackMetadata.EMPTY;
+                tracks.put(stream.optInt("id", i + 1), track);
+            }
+        }
+        if (LOCAL_LOGV) Log.v(TAG, "statistics list " + String.valueOf(tracks.size()) + " streams");
+        return tracks;
+    }
+
+    /**
+     * @param stream one stream from /statistics, or the body of /stats?sid=N
+     * @return track
+     * @throws IOException if the stream has no song title
+     */
+    static TrackMetadata parseStream(JSONObject stream) throws IOException
+    {
+        if (!stream.has("songtitle"))
+        {
+            throw new IOException("No songtitle");
+        }
+        return TrackMetadata.fromStreamTitle(stream.optString("songtitle"), null,
+                stream.optInt("bitrate", TrackMetadata.UNKNOWN), stream.optInt("currentlisteners", TrackMetadata.UNKNOWN));
+    }
+
+    /**
+     * The server won't give us the page, or it isn't a statistics page, so asking again soon won't help
+     */
+    static class NoStatisticsException extends IOException
+    {
+        private static final long serialVersionUID = 6320148873617253018L;
+
+        NoStatisticsException(String message)
+        {
+            super(message);
+        }
+    }
+}
@@ -0,0 +1,214 @@
+/*
+ * Copyright (C) 2013 Reese Wilson | Shiny Mayhem
+
+   Licensed under the Apache License, Version 2.0 (the "License");
+   you may not use this file except in compliance with the License.
+   You may obtain a copy of the License at
+
+       http://www.apache.org/licenses/LICENSE-2.0
+
+   Unless required by applicable law or agreed to in writing, software
+   distributed under the License is distributed on an "AS IS" BASIS,
+   WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+   See the License for the specific language governing permissions and
+   limitations under the License.
+*/
+package com.shinymayhem.radiometadata;
+
+/**
+ *
+ * @author Reese Wilson
+ * Now playing information from a parser. Artist and title are trimmed, with runs of whitespace collapsed,
+ * and their hash is computed once, so checking whether the song changed is a single comparison.
+ * Album, bitrate and listeners are extra information, and don't make two tracks different
+ *
+ */
+public final class TrackMetadata {
+    public static final int UNKNOWN = -1;
+    //no metadata found
+    public static final TrackMetadata EMPTY = new TrackMetadata("", "");
+    //the parser couldn't read the metadata, e.g. a request failed or the stream isn't listed. also empty
+    public static final TrackMetadata FAILED = new TrackMetadata("", "");
+
+    private final String mArtist;
+    private final String mTitle;
+    private final String mAlbum;
+    private final int mBitrate;
+    private final int mListeners;
+    private final int mHash;
+
+    /**
+     * @param artist can be null
+     * @param title can be null
+     */
+    public TrackMetadata(String artist, String title)
+    {
+        this(artist, title, null, UNKNOWN, UNKNOWN);
+    }
+
+    /**
+     * @param artist can be null
+     * @param title can be null
+     * @param album null if unknown
+     * @param bitrate kbps, or UNKNOWN
+     * @param listeners current listeners, or UNKNOWN
+     */
+    public TrackMetadata(String artist, String title, String album, int bitrate, int listeners)
+    {
+        mArtist = normalize(artist);
+        mTitle = normalize(title);
+        mAlbum = (album == null) ? null : normalize(album);
+        mBitrate = bitrate;
+        mListeners = listeners;
+        mHash = 31 * mArtist.hashCode() + mTitle.hashCode();
+    }
+
+    /**
+     * Split an "Artist - Title" stream title on the first dash. Without a dash, the whole string is the title
+     * @param streamTitle can be null
+     * @return track with artist and title
+     */
+    public static TrackMetadata fromStreamTitle(String streamTitle)
+    {
+        return fromStreamTitle(streamTitle, null, UNKNOWN, UNKNOWN);
+    }
+
+    /**
+     * Split an "Artist - Title" stream title on the first dash, and add the extra information
+     * @param streamTitle can be null
+     * @param album null if unknown
+     * @param bitrate kbps, or UNKNOWN
+     * @param listeners current listeners, or UNKNOWN
+     * @return track with artist and title
+     */
+    public static TrackMetadata fromStreamTitle(String streamTitle, String album, int bitrate, int listeners)
+    {
+        if (streamTitle == null)
+        {
+            return new TrackMetadata(null, null, album, bitrate, listeners);
+        }
+        int dash = streamTitle.indexOf('-');
+        if (dash < 0)
+        {
+            return new TrackMetadata(null, streamTitle, album, bitrate, listeners);
+        }
+        return new TrackMetadata(streamTitle.substring(0, dash), streamTitle.substring(dash + 1), album, bitrate, listeners);
+    }
+
+    public String getArtist()
+    {
+        return mArtist;
+    }
+
+    public String getTitle()
+    {
+        return mTitle;
+    }
+
+    /**
+     * @return album, or null if unknown
+     */
+    public String getAlbum()
+    {
+        return mAlbum;
+    }
+
+    public int getBitrate()
+    {
+        return mBitrate;
+    }
+
+    public int getListeners()
+    {
+        return mListeners;
+    }
+
+    /**
+     * @return true if neither artist nor title is known
+     */
+    public boolean isEmpty()
+    {
+        return mArtist.length() == 0 && mTitle.length() == 0;
+    }
+
+    /**
+     * Same track if artist and title match
+     */
+    @Override
+    public boolean equals(Object other)
+    {
+        if (this == other)
+        {
+            return true;
+        }
+        if (!(other instanceof TrackMetadata))
+        {
+            return false;
+        }
+        TrackMetadata track = (TrackMetadata)other;
+        return mHash == track.mHash && mTitle.equals(track.mTitle) && mArtist.equals(track.mArtist);
+    }
+
+    @Override
+    public int hashCode()
+    {
+        return mHash;
+    }
+
+    /**
+     * @return "Artist - Title", or just the title if the artist is unknown
+     */
+    public String getDisplayName()
+    {
+        return mArtist.length() == 0 ? mTitle : mArtist + " - " + mTitle;
+    }
+
+    @Override
+    public String toString()
+    {
+        return mArtist + " - " + mTitle;
+    }
+
+    //trim and collapse whitespace, without copying when there is nothing to change
+    private static String normalize(String value)
+    {
+        if (value == null)
+        {
+            return "";
+        }
+        String trimmed = value.trim();
+        int length = trimmed.length();
+        for (int i = 1; i < length; i++)
+        {
+            if (Character.isWhitespace(trimmed.charAt(i)) && (trimmed.charAt(i) != ' ' || Character.isWhitespace(trimmed.charAt(i - 1))))
+            {
+                return collapse(trimmed);
+            }
+        }
+        return trimmed;
+    }
+
+    private static String collapse(String trimmed)
+    {
+        StringBuilder collapsed = new StringBuilder(trimmed.length());
+        boolean space = false;
+        for (int i = 0; i < trimmed.length(); i++)
+        {
+            char c = trimmed.charAt(i);
+            if (Character.isWhitespace(c))
+            {
+                space = true;
+            }
+            else
+            {
+                if (space)
+                {
+                    collapsed.append(' ');
+                    space = false;
+                }
+                collapsed.append(c);
+            }
+        }
+        return collapsed.toString();
+    }
+}
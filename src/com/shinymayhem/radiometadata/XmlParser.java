@@ -1,251 +1,470 @@
-/*
- * Copyright (C) 2013 Reese Wilson | Shiny Mayhem
-
-   Licensed under the Apache License, Version 2.0 (the "License");
-   you may not use this file except in compliance with the License.
-   You may obtain a copy of the License at
-
-       http://www.apache.org/licenses/LICENSE-2.0
-
-   Unless required by applicable law or agreed to in writing, software
-   distributed under the License is distributed on an "AS IS" BASIS,
-   WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
-   See the License for the specific language governing permissions and
-   limitations under the License.
-*/
-package com.shinymayhem.radiometadata;
-
-import java.io.ByteArrayInputStream;
-import java.io.IOException;
-import java.io.InputStream;
-import java.util.HashMap;
-import java.util.List;
-
-import org.xmlpull.v1.XmlPullParser;
-import org.xmlpull.v1.XmlPullParserException;
-
-import android.util.Xml;
-/**
- * A convenience class for parsing XML, using XmlPullParser 
- * @author Reese Wilson
- *
- */
-public class XmlParser {
-    //protected ActivityLogger mLogger = new ActivityLogger();
-
-    /**
-     * Get a list of the contents of all instances of the specified tags list
-     * @param root Root of XML
-     * @param tags List of tags that are being searched for
-     * @param in XML string that is being searched
-     * @return list of contents within all instances of the specified tags
-     * @throws IOException
-     * @throws XmlPullParserException
-     */
-    public HashMap<String, String> getFirstStringsForTags(String root, List<String> tags, String in) throws IOException, XmlPullParserException
-    {
-        InputStream stream = new ByteArrayInputStream(in.getBytes());
-        return this.getFirstStringsForTags(root, tags, stream);
-    }
-    
-    /**
-     * Get a list of the contents of all instances of the specified tags list
-     * @param root Root of XML
-     * @param tags List of tags that are being searched for
-     * @param in XML InputStream that is being searched
-     * @return list of contents within all instances of the specified tags
-     * @throws IOException
-     * @throws XmlPullParserException
-     */
-    public HashMap<String, String> getFirstStringsForTags(String root, List<String> tags, InputStream in) throws IOException, XmlPullParserException
-    {
-        HashMap<String, String> results = new HashMap<String, String>();
-        int find = tags.size();
-        int found = 0;
-        try {
-            //initialize XML parser
-            XmlPullParser parser = Xml.newPullParser();
-            parser.setFeature(XmlPullParser.FEATURE_PROCESS_NAMESPACES, false);
-            parser.setInput(in, null);
-            parser.nextTag();
-            
-            //make sure we are starting with a start tag
-            parser.require(XmlPullParser.START_TAG, null, root);
-            //loop through each tag in the document, returning when we each tag has a value
-            while (parser.next() != XmlPullParser.END_DOCUMENT) {
-                if (parser.getEventType() != XmlPullParser.START_TAG) {
-                    continue;
-                }
-                String name = parser.getName();
-                //if this is one of the tags we were looking for, add it if it doesn't exist yet
-                if (tags.contains(name) && !results.containsKey(name)) {
-                    String text = readText(parser); 
-                    results.put(name, text);
-                    found++;
-                } 
-                if (found == find) //we are done looking
-                {
-                    break;
-                }
-            }  
-        }
-        finally
-        {
-            in.close();
-        }
-        return results;
-    }
-    
-    private String readText(XmlPullParser parser) throws IOException, XmlPullParserException {
-        String result = "";
-        if (parser.next() == XmlPullParser.TEXT) {
-            result = parser.getText();
-            parser.nextTag();
-        }
-        return result;
-    }
-    
-//  not used
-//  /**
-//   * Get a list of the contents of all instances of the specified tags list
-//   * @param root Root of XML
-//   * @param tags List of tags that are being searched for
-//   * @param in XML string that is being searched
-//   * @return map of contents within last instances of the specified tags
-//   * @throws IOException
-//   * @throws XmlPullParserException
-//   */
-//  public HashMap<String, String> getLastStringsForTags(String root, List<String> tags, String in) throws IOException, XmlPullParserException
-//  {
-//      InputStream stream = new ByteArrayInputStream(in.getBytes());
-//      return this.getLastStringsForTags(root, tags, stream);
-//  }
-//  
-//  /**
-//   * Get a list of the contents of all instances of the specified tags list
-//   * @param root Root of XML
-//   * @param tags List of tags that are being searched for
-//   * @param in XML InputStream that is being searched
-//   * @return map of contents within last instances of the specified tags
-//   * @throws IOException
-//   * @throws XmlPullParserException
-//   */
-//  public HashMap<String, String> getLastStringsForTags(String root, List<String> tags, InputStream in) throws IOException, XmlPullParserException
-//  {
-//      HashMap<String, String> results = new HashMap<String, String>();
-//      try {
-//          XmlPullParser parser = Xml.newPullParser();
-//            parser.setFeature(XmlPullParser.FEATURE_PROCESS_NAMESPACES, false);
-//            parser.setInput(in, null);
-//            parser.nextTag();
-//            
-//            parser.require(XmlPullParser.START_TAG, null, root);
-//            while (parser.next() != XmlPullParser.END_DOCUMENT) {
-//                if (parser.getEventType() != XmlPullParser.START_TAG) {
-//                    continue;
-//                }
-//                String name = parser.getName();
-//                // Starts by looking for the specified tag
-//                if (tags.contains(name)) {
-//                  String text = readText(parser); 
-//                    results.put(name, text);
-//                } else {
-//                    //skip(parser);
-//                }
-//            }  
-//      }
-//      finally
-//      {
-//          in.close();
-//      }
-//      return results;
-//  }
-//  
-//  /**
-//   * Get a list of the contents of all instances of the specified tag
-//   * @param root Root of XML
-//   * @param tag Tag that is being searched for
-//   * @param in XML string that is being searched
-//   * @return list of contents within all instances of the specified tag
-//   * @throws IOException
-//   * @throws XmlPullParserException
-//   */
-//  public List<String> getStringsForTag(String root, String tag, String in) throws IOException, XmlPullParserException
-//  {
-//      InputStream stream = new ByteArrayInputStream(in.getBytes());
-//      return this.getStringsForTag(root, tag, stream);
-//  }
-//  
-//  /**
-//   * Get a list of the contents of all instances of the specified tag
-//   * @param root Root of XML
-//   * @param tag Tag that is being searched for
-//   * @param in XML InputStream that is being searched
-//   * @return list of contents within all instances of the specified tag
-//   * @throws IOException
-//   * @throws XmlPullParserException
-//   */
-//  public List<String> getStringsForTag(String root, String tag, InputStream in) throws IOException, XmlPullParserException 
-//  {
-//      List<String> results = new ArrayList<String>();
-//      try {
-//          XmlPullParser parser = Xml.newPullParser();
-//            parser.setFeature(XmlPullParser.FEATURE_PROCESS_NAMESPACES, false);
-//            parser.setInput(in, null);
-//            parser.nextTag();
-//            
-//            parser.require(XmlPullParser.START_TAG, null, root);
-//            while (parser.next() != XmlPullParser.END_DOCUMENT) {
-//                if (parser.getEventType() != XmlPullParser.START_TAG) {
-//                    continue;
-//                }
-//                String name = parser.getName();
-//                // Starts by looking for the specified tag
-//                if (name.equals(tag)) {
-//                  String text = readText(parser); 
-//                    results.add(text);
-//                } else {
-//                    //skip(parser);
-//                }
-//            }  
-//      }
-//      finally
-//      {
-//          in.close();
-//      }
-//      return results;
-//  }
-//  
-//
-//  private void skipCurrentTag(XmlPullParser parser) throws XmlPullParserException, IOException {
-//      if (parser.getEventType() != XmlPullParser.START_TAG) {
-//          throw new IllegalStateException();
-//      }
-//      int depth = 1;
-//      log("skipping " + parser.getName(), "v");
-//      while (depth != 0) {
-//          int result = parser.next();
-//          String name = parser.getName();
-//          log ("subskipping " + name, "d");
-//          switch (result) {
-//          case XmlPullParser.END_TAG:
-//              depth--;
-//              break;
-//          case XmlPullParser.START_TAG:
-//              depth++;
-//              break;
-//          default:
-//              log("not start or end tag", "d");   
-//          }
-//      }
-//  }
-
-//  private void log(String text, String level)
-//  {
-//      Log.d("XmlParser", text);
-//      //mLogger.log(mContext, text, level);
-//  }
-    
-    
-    
-}
+/*
+ * Copyright (C) 2013 Reese Wilson | Shiny Mayhem
+
+   Licensed under the Apache License, Version 2.0 (the "License");
+   you may not use this file except in compliance with the License.
+   You may obtain a copy of the License at
+
+       http://www.apache.org/licenses/LICENSE-2.0
+
+   Unless required by applicable law or agreed to in writing, software
+   distributed under the License is distributed on an "AS IS" BASIS,
+   WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+   See the License for the specific language governing permissions and
+   limitations under the License.
+*/
+package com.shinymayhem.radiometadata;
+
+import java.io.ByteArrayInputStream;
+import java.io.FilterInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+
+import org.xmlpull.v1.XmlPullParser;
+import org.xmlpull.v1.XmlPullParserException;
+
+import android.util.Log;
+import android.util.Xml;
+/**
+ * A convenience class for parsing XML, using XmlPullParser 
+ * @author Reese Wilson
+ *
+ */
+public class XmlParser {
+    private static final String TAG = "XmlParser";
+    //protected ActivityLogger mLogger = new ActivityLogger();
+
+    /**
+     * Get a list of the contents of all instances of the specified tags list
+     * @param root Root of XML
+     * @param tags List of tags that are being searched for
+     * @param in XML string that is being searched
+     * @return list of contents within all instances of the specified tags
+     * @throws IOException
+     * @throws XmlPullParserException
+     */
+    public HashMap<String, String> getFirstStringsForTags(String root, List<String> tags, String in) throws IOException, XmlPullParserException
+    {
+        InputStream stream = new ByteArrayInputStream(in.getBytes());
+        return this.getFirstStringsForTags(root, tags, stream);
+    }
+    
+    /**
+     * Get a list of the contents of all instances of the specified tags list
+     * @param root Root of XML
+     * @param tags List of tags that are being searched for
+     * @param in XML InputStream that is being searched
+     * @return list of contents within all instances of the specified tags
+     * @throws IOException
+     * @throws XmlPullParserException
+     */
+    public HashMap<String, String> getFirstStringsForTags(String root, List<String> tags, InputStream in) throws IOException, XmlPullParserException
+    {
+        HashMap<String, String> results = new HashMap<String, String>();
+        int find = tags.size();
+        int found = 0;
+        try {
+            //initialize XML parser
+            XmlPullParser parser = Xml.newPullParser();
+            parser.setFeature(XmlPullParser.FEATURE_PROCESS_NAMESPACES, false);
+            parser.setInput(in, null);
+            parser.nextTag();
+            
+            //make sure we are starting with a start tag
+            parser.require(XmlPullParser.START_TAG, null, root);
+            //loop through each tag in the document, returning when we each tag has a value
+            while (parser.next() != XmlPullParser.END_DOCUMENT) {
+                if (parser.getEventType() != XmlPullParser.START_TAG) {
+                    continue;
+                }
+                String name = parser.getName();
+                //if this is one of the tags we were looking for, add it if it doesn't exist yet
+                if (tags.contains(name) && !results.containsKey(name)) {
+                    String text = readText(parser); 
+                    results.put(name, text);
+                    found++;
+                } 
+                if (found == find) //we are done looking
+                {
+                    break;
+                }
+            }  
+        }
+        finally
+        {
+            in.close();
+        }
+        return results;
+    }
+    
+    /**
+     * Get the contents of the first element at each of the specified paths. Elements that can't lead to
+     * one of the paths are skipped without reading their contents, and parsing stops as soon as every path
+     * has a value, so the rest of the stream is never read
+     * @param paths paths from the root element, like "prog/song/artist". "*" matches any element name.
+     * A path can't continue past another path, the contents of a found element aren't searched
+     * @param in XML InputStream that is being searched. closed when done
+     * @param maxBytes stop reading after this many bytes, returning whatever was found before
+     * @return map of path to contents, for the paths that were found
+     * @throws IOException
+     * @throws XmlPullParserException
+     */
+    public HashMap<String, String> getFirstStringsForPaths(List<String> paths, InputStream in, int maxBytes) throws IOException, XmlPullParserException
+    {
+        HashMap<String, String> results = new HashMap<String, String>();
+        BudgetInputStream budget = new BudgetInputStream(in, maxBytes);
+        try {
+            XmlPullParser parser = Xml.newPullParser();
+            parser.setFeature(XmlPullParser.FEATURE_PROCESS_NAMESPACES, false);
+            parser.setInput(budget, null);
+            parser.nextTag();
+            
+            List<PathQuery> live = matching(toQueries(paths), 0, parser.getName(), results);
+            if (!live.isEmpty())
+            {
+                this.readElement(parser, live, 0, results, paths.size());
+            }
+        }
+        catch (XmlPullParserException e)
+        {
+            //running out of budget looks like a truncated document to the parser
+            if (!budget.isExhausted())
+            {
+                throw e;
+            }
+        }
+        finally
+        {
+            if (budget.isExhausted())
+            {
+                Log.w(TAG, "Stopped after " + String.valueOf(maxBytes) + " bytes, found " + String.valueOf(results.size()) + " of " + String.valueOf(paths.size()));
+            }
+            in.close();
+        }
+        return results;
+    }
+    
+    /**
+     * Search inside the element at the current START_TAG, which matched every query in live so far.
+     * Returns at the element's END_TAG, or as soon as every path has been found
+     */
+    private void readElement(XmlPullParser parser, List<PathQuery> live, int depth, HashMap<String, String> results, int find) throws IOException, XmlPullParserException
+    {
+        for (PathQuery query : live)
+        {
+            if (query.segments.length == depth + 1)
+            {
+                //this element is a result. first match wins
+                String text = this.readContents(parser);
+                for (PathQuery done : live)
+                {
+                    if (done.segments.length == depth + 1 && !results.containsKey(done.path))
+                    {
+                        results.put(done.path, text);
+                    }
+                }
+                return;
+            }
+        }
+        while (results.size() < find)
+        {
+            int event = parser.next();
+            if (event == XmlPullParser.END_TAG || event == XmlPullParser.END_DOCUMENT)
+            {
+                return;
+            }
+            if (event != XmlPullParser.START_TAG)
+            {
+                continue;
+            }
+            List<PathQuery> childLive = matching(live, depth + 1, parser.getName(), results);
+            if (childLive.isEmpty())
+            {
+                this.skipCurrentTag(parser);
+            }
+            else
+            {
+                this.readElement(parser, childLive, depth + 1, results, find);
+            }
+        }
+    }
+    
+    //queries that have not been found yet, and whose segment at depth matches the element name
+    private static List<PathQuery> matching(List<PathQuery> queries, int depth, String name, HashMap<String, String> results)
+    {
+        List<PathQuery> live = new ArrayList<PathQuery>(queries.size());
+        for (PathQuery query : queries)
+        {
+            if (query.segments.length > depth && !results.containsKey(query.path))
+            {
+                String segment = query.segments[depth];
+                if (segment.equals("*") || segment.equals(name))
+                {
+                    live.add(query);
+                }
+            }
+        }
+        return live;
+    }
+    
+    private static List<PathQuery> toQueries(List<String> paths)
+    {
+        List<PathQuery> queries = new ArrayList<PathQuery>(paths.size());
+        for (String path : paths)
+        {
+            queries.add(new PathQuery(path));
+        }
+        return queries;
+    }
+    
+    //text of the current element, ignoring any child elements
+    private String readContents(XmlPullParser parser) throws IOException, XmlPullParserException
+    {
+        StringBuilder text = new StringBuilder();
+        int depth = 1;
+        while (depth > 0)
+        {
+            switch (parser.next())
+            {
+            case XmlPullParser.START_TAG:
+                depth++;
+                break;
+            case XmlPullParser.END_TAG:
+                depth--;
+                break;
+            case XmlPullParser.TEXT:
+                if (depth == 1)
+                {
+                    text.append(parser.getText());
+                }
+                break;
+            case XmlPullParser.END_DOCUMENT:
+                return text.toString();
+            }
+        }
+        return text.toString();
+    }
+    
+    //skip to the END_TAG of the current element, never asking for text
+    private void skipCurrentTag(XmlPullParser parser) throws XmlPullParserException, IOException
+    {
+        int depth = 1;
+        while (depth > 0)
+        {
+            switch (parser.next())
+            {
+            case XmlPullParser.START_TAG:
+                depth++;
+                break;
+            case XmlPullParser.END_TAG:
+                depth--;
+                break;
+            case XmlPullParser.END_DOCUMENT:
+                return;
+            }
+        }
+    }
+    
+    private static class PathQuery
+    {
+        final String path;
+        final String[] segments;
+        
+        PathQuery(String path)
+        {
+            this.path = path;
+            this.segments = path.split("/");
+        }
+    }
+    
+    //reports end of stream once the budget is used up, and remembers that it did
+    private static class BudgetInputStream extends FilterInputStream
+    {
+        private int mRemaining;
+        private boolean mExhausted = false;
+        
+        BudgetInputStream(InputStream in, int budget)
+        {
+            super(in);
+            mRemaining = budget;
+        }
+        
+        @Override
+        public int read() throws IOException
+        {
+            if (mRemaining <= 0)
+            {
+                mExhausted = true;
+                return -1;
+            }
+            int b = in.read();
+            if (b >= 0)
+            {
+                mRemaining--;
+            }
+            return b;
+        }
+        
+        @Override
+        public int read(byte[] buffer, int offset, int length) throws IOException
+        {
+            if (mRemaining <= 0)
+            {
+                mExhausted = true;
+                return -1;
+            }
+            int read = in.read(buffer, offset, Math.min(length, mRemaining));
+            if (read > 0)
+            {
+                mRemaining -= read;
+            }
+            return read;
+        }
+        
+        @Override
+        public long skip(long count) throws IOException
+        {
+            long skipped = in.skip(Math.min(count, mRemaining));
+            mRemaining -= skipped;
+            return skipped;
+        }
+        
+        boolean isExhausted()
+        {
+            return mExhausted;
+        }
+    }
+    
+    private String readText(XmlPullParser parser) throws IOException, XmlPullParserException {
+        String result = "";
+        if (parser.next() == XmlPullParser.TEXT) {
+            result = parser.getText();
+            parser.nextTag();
+        }
+        return result;
+    }
+    
+//  not used
+//  /**
+//   * Get a list of the contents of all instances of the specified tags list
+//   * @param root Root of XML
+//   * @param tags List of tags that are being searched for
+//   * @param in XML string that is being searched
+//   * @return map of contents within last instances of the specified tags
+//   * @throws IOException
+//   * @throws XmlPullParserException
+//   */
+//  public HashMap<String, String> getLastStringsForTags(String root, List<String> tags, String in) throws IOException, XmlPullParserException
+//  {
+//      InputStream stream = new ByteArrayInputStream(in.getBytes());
+//      return this.getLastStringsForTags(root, tags, stream);
+//  }
+//  
+//  /**
+//   * Get a list of the contents of all instances of the specified tags list
+//   * @param root Root of XML
+//   * @param tags List of tags that are being searched for
+//   * @param in XML InputStream that is being searched
+//   * @return map of contents within last instances of the specified tags
+//   * @throws IOException
+//   * @throws XmlPullParserException
+//   */
+//  public HashMap<String, String> getLastStringsForTags(String root, List<String> tags, InputStream in) throws IOException, XmlPullParserException
+//  {
+//      HashMap<String, String> results = new HashMap<String, String>();
+//      try {
+//          XmlPullParser parser = Xml.newPullParser();
+//            parser.setFeature(XmlPullParser.FEATURE_PROCESS_NAMESPACES, false);
+//            parser.setInput(in, null);
+//            parser.nextTag();
+//            
+//            parser.require(XmlPullParser.START_TAG, null, root);
+//            while (parser.next() != XmlPullParser.END_DOCUMENT) {
+//                if (parser.getEventType() != XmlPullParser.START_TAG) {
+//                    continue;
+//                }
+//                String name = parser.getName();
+//                // Starts by looking for the specified tag
+//                if (tags.contains(name)) {
+//                  String text = readText(parser); 
+//                    results.put(name, text);
+//                } else {
+//                    //skip(parser);
+//                }
+//            }  
+//      }
+//      finally
+//      {
+//          in.close();
+//      }
+//      return results;
+//  }
+//  
+//  /**
+//   * Get a list of the contents of all instances of the specified tag
+//   * @param root Root of XML
+//   * @param tag Tag that is being searched for
+//   * @param in XML string that is being searched
+//   * @return list of contents within all instances of the specified tag
+//   * @throws IOException
+//   * @throws XmlPullParserException
+//   */
+//  public List<String> getStringsForTag(String root, String tag, String in) throws IOException, XmlPullParserException
+//  {
+//      InputStream stream = new ByteArrayInputStream(in.getBytes());
+//      return this.getStringsForTag(root, tag, stream);
+//  }
+//  
+//  /**
+//   * Get a list of the contents of all instances of the specified tag
+//   * @param root Root of XML
+//   * @param tag Tag that is being searched for
+//   * @param in XML InputStream that is being searched
+//   * @return list of contents within all instances of the specified tag
+//   * @throws IOException
+//   * @throws XmlPullParserException
+//   */
+//  public List<String> getStringsForTag(String root, String tag, InputStream in) throws IOException, XmlPullParserException 
+//  {
+//      List<String> results = new ArrayList<String>();
+//      try {
+//          XmlPullParser parser = Xml.newPullParser();
+//            parser.setFeature(XmlPullParser.FEATURE_PROCESS_NAMESPACES, false);
+//            parser.setInput(in, null);
+//            parser.nextTag();
+//            
+//            parser.require(XmlPullParser.START_TAG, null, root);
+//            while (parser.next() != XmlPullParser.END_DOCUMENT) {
+//                if (parser.getEventType() != XmlPullParser.START_TAG) {
+//                    continue;
+//                }
+//                String name = parser.getName();
+//                // Starts by looking for the specified tag
+//                if (name.equals(tag)) {
+//                  String text = readText(parser); 
+//                    results.add(text);
+//                } else {
+//                    //skip(parser);
+//                }
+//            }  
+//      }
+//      finally
+//      {
+//          in.close();
+//      }
+//      return results;
+//  }
+//  
+//
+//  private void log(String text, String level)
+//  {
+//      Log.d("XmlParser", text);
+//      //mLogger.log(mContext, text, level);
+//  }
+    
+    
+    
+}
@@ -0,0 +1,188 @@
+/*
+ * Copyright (C) 2013 Reese Wilson | Shiny Mayhem
+
+   Licensed under the Apache License, Version 2.0 (the "License");
+   you may not use this file except in compliance with the License.
+   You may obtain a copy of the License at
+
+       http://www.apache.org/licenses/LICENSE-2.0
+
+   Unless required by applicable law or agreed to in writing, software
+   distributed under the License is distributed on an "AS IS" BASIS,
+   WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+   See the License for the specific language governing permissions and
+   limitations under the License.
+*/
+package com.shinymayhem.radiopresets;
+
+import android.content.Context;
+import android.os.AsyncTask;
+import android.os.Handler;
+import android.os.SystemClock;
+
+import com.shinymayhem.radiometadata.TrackMetadata;
+
+/**
+ * Keeps watching a station after playback hopped away from a disliked song on it, and reports
+ * when the station moves on, so playback can go back to it. Runs on the thread it was created on
+ * @author Reese Wilson
+ *
+ */
+public class DislikeHopper {
+    private static final boolean LOCAL_LOGV = ActivityMain.LOCAL_LOGV;
+    private static final boolean LOCAL_LOGD = ActivityMain.LOCAL_LOGD;
+    private static final String TAG = "DislikeHopper";
+    
+    public static final long WATCH_INTERVAL = 15 * 1000;
+    //stay on the new station if the original one doesn't move on by then
+    public static final long MAX_WATCH = 20 * 60 * 1000;
+    
+    public interface Listener
+    {
+        /**
+         * Called when the watched station is playing something other than the disliked track
+         * @param preset preset that was hopped away from
+         * @param track track now playing on it
+         * @return true to keep watching, with track as the new disliked track
+         */
+        public boolean onOriginChanged(int preset, TrackMetadata track);
+    }
+    
+    private final Handler mHandler = new Handler();
+    private final Listener mListener;
+    protected ActivityLogger mLogger;
+    private boolean mWatching = false;
+    //incremented on start and cancel, so a poll that was running at the time is ignored
+    private int mGeneration = 0;
+    private int mPreset;
+    private String mUrl;
+    private TrackMetadata mDisliked;
+    private long mStarted;
+    
+    public DislikeHopper(Context context, Listener listener)
+    {
+        mLogger = new ActivityLogger(context);
+        mListener = listener;
+    }
+    
+    /**
+     * Start watching a station
+     * @param preset preset being hopped away from
+     * @param url metadata url of the station
+     * @param disliked track that caused the hop
+     */
+    public void start(int preset, String url, TrackMetadata disliked)
+    {
+        cancel();
+        if (LOCAL_LOGD) log("watching preset " + String.valueOf(preset) + " until " + disliked + " ends", "d");
+        mWatching = true;
+        mPreset = preset;
+        mUrl = url;
+        mDisliked = disliked;
+        mStarted = SystemClock.elapsedRealtime();
+        mHandler.postDelayed(mPoll, WATCH_INTERVAL);
+    }
+    
+    /**
+     * Stop watching, e.g. when a station is picked by hand
+     */
+    public void cancel()
+    {
+        if (!mWatching)
+        {
+            return;
+        }
+        if (LOCAL_LOGV) log("cancel", "v");
+        mWatching = false;
+        mGeneration++;
+        mHandler.removeCallbacks(mPoll);
+    }
+    
+    public boolean isWatching()
+    {
+        return mWatching;
+    }
+    
+    public int getPreset()
+    {
+        return mPreset;
+    }
+    
+    private final Runnable mPoll = new Runnable() {
+        @Override
+        public void run() {
+            if (!mWatching)
+            {
+                return;
+            }
+            if (SystemClock.elapsedRealtime() - mStarted > MAX_WATCH)
+            {
+                if (LOCAL_LOGD) log("gave up on preset " + String.valueOf(mPreset), "d");
+                cancel();
+                return;
+            }
+            new AsyncTaskPoll(mGeneration).execute(mUrl);
+        }
+    };
+    
+    private void onPolled(int generation, TrackMetadata track)
+    {
+        if (generation != mGeneration || !mWatching)
+        {
+            return;
+        }
+        if (track == null)
+        {
+            if (LOCAL_LOGD) log("preset " + String.valueOf(mPreset) + " can't be polled, not watching it", "d");
+            cancel();
+            return;
+        }
+        //empty means the poll failed, not that the song ended
+        if (!track.isEmpty() && !track.equals(mDisliked))
+        {
+            if (LOCAL_LOGV) log("preset " + String.valueOf(mPreset) + " now playing " + track, "v");
+            if (mListener.onOriginChanged(mPreset, track))
+            {
+                mDisliked = track;
+            }
+            else
+            {
+                cancel();
+                return;
+            }
+        }
+        mHandler.postDelayed(mPoll, WATCH_INTERVAL);
+    }
+    
+    private class AsyncTaskPoll extends AsyncTask<String, Void, TrackMetadata>
+    {
+        private final int mPollGeneration;
+        
+        AsyncTaskPoll(int generation)
+        {
+            mPollGeneration = generation;
+        }
+        
+        //null if no parser polls the url, e.g. a station with only in-band metadata
+        @Override
+        protected TrackMetadata doInBackground(String... urls) {
+            MetadataParser parser = new MetadataParser();
+            if (parser.getParser(urls[0]) == null)
+            {
+                return null;
+            }
+            return parser.getMetadata(urls[0]);
+        }
+        
+        @Override
+        protected void onPostExecute(TrackMetadata track)
+        {
+            onPolled(mPollGeneration, track);
+        }
+    }
+    
+    private void log(String text, String level)
+    {
+        mLogger.log(TAG, text, level);
+    }
+}
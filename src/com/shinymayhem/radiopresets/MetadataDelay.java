@@ -0,0 +1,146 @@
+/*
+ * Copyright (C) 2013 Reese Wilson | Shiny Mayhem
+
+   Licensed under the Apache License, Version 2.0 (the "License");
+   you may not use this file except in compliance with the License.
+   You may obtain a copy of the License at
+
+       http://www.apache.org/licenses/LICENSE-2.0
+
+   Unless required by applicable law or agreed to in writing, software
+   distributed under the License is distributed on an "AS IS" BASIS,
+   WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+   See the License for the specific language governing permissions and
+   limitations under the License.
+*/
+package com.shinymayhem.radiopresets;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import android.os.Handler;
+import android.os.SystemClock;
+
+import com.shinymayhem.radiometadata.TrackMetadata;
+
+/**
+ * Holds metadata back until the audio it belongs to is heard. The player buffers several seconds of
+ * audio, so a new song's metadata (in-band or polled) arrives before the song plays. The delay is an
+ * estimate of how much audio is buffered, from samples of bytes sent to the player against its position
+ * Not thread safe, call from the thread it was created on
+ * @author Reese Wilson
+ *
+ */
+public class MetadataDelay {
+    
+    //samples outside this range are measurement errors
+    public static final long MAX_DELAY = 30 * 1000;
+    //weight of a new sample in the running estimate
+    private static final double SAMPLE_WEIGHT = 0.3;
+    
+    public interface Listener
+    {
+        /**
+         * @param track track that is now audible
+         */
+        public void onPresent(TrackMetadata track);
+    }
+    
+    private final Handler mHandler = new Handler();
+    private final Listener mListener;
+    private final List<Runnable> mQueued = new ArrayList<Runnable>();
+    //-1 until the first sample
+    private long mDelay = -1;
+    private long mLastDelay = 0;
+    
+    public MetadataDelay(Listener listener)
+    {
+        mListener = listener;
+    }
+    
+    /**
+     * Add a buffer depth measurement
+     * @param bufferedMillis audio sent to the player that it hasn't played yet
+     */
+    public void addSample(long bufferedMillis)
+    {
+        if (bufferedMillis < 0 || bufferedMillis > MAX_DELAY)
+        {
+            return;
+        }
+        if (mDelay < 0)
+        {
+            mDelay = bufferedMillis;
+        }
+        else
+        {
+            mDelay = Math.round(mDelay + SAMPLE_WEIGHT * (bufferedMillis - mDelay));
+        }
+    }
+    
+    /**
+     * Queue a track to be presented once the buffered audio ahead of it has played
+     * @param track
+     * @return delay used, in milliseconds
+     */
+    public long submit(final TrackMetadata track)
+    {
+        final long delay = getDelay();
+        final long submitted = SystemClock.elapsedRealtime();
+        Runnable present = new Runnable() {
+            @Override
+            public void run() {
+                mQueued.remove(this);
+                mLastDelay = SystemClock.elapsedRealtime() - submitted;
+                mListener.onPresent(track);
+            }
+        };
+        if (delay == 0)
+        {
+            present.run();
+        }
+        else
+        {
+            mQueued.add(present);
+            mHandler.postDelayed(present, delay);
+        }
+        return delay;
+    }
+    
+    /**
+     * Drop queued tracks, e.g. when the station changes, and start estimating from scratch
+     */
+    public void clear()
+    {
+        for (Runnable present : mQueued)
+        {
+            mHandler.removeCallbacks(present);
+        }
+        mQueued.clear();
+        mDelay = -1;
+    }
+    
+    /**
+     * @return estimated buffer depth in milliseconds, 0 if not measured yet
+     */
+    public long getDelay()
+    {
+        return Math.max(mDelay, 0);
+    }
+    
+    /**
+     * @return how long the last presented track was held back, in milliseconds
+     */
+    public long getLastDelay()
+    {
+        return mLastDelay;
+    }
+    
+    /**
+     * @return tracks waiting to be presented
+     */
+    public int getQueuedCount()
+    {
+        return mQueued.size();
+    }
+}
@@ -1,69 +1,233 @@
-/*
- * Copyright (C) 2013 Reese Wilson | Shiny Mayhem
-
-   Licensed under the Apache License, Version 2.0 (the "License");
-   you may not use this file except in compliance with the License.
-   You may obtain a copy of the License at
-
-       http://www.apache.org/licenses/LICENSE-2.0
-
-   Unless required by applicable law or agreed to in writing, software
-   distributed under the License is distributed on an "AS IS" BASIS,
-   WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
-   See the License for the specific language governing permissions and
-   limitations under the License.
-*/
-package com.shinymayhem.radiopresets;
-
-import java.util.ArrayList;
-import java.util.Arrays;
-import java.util.HashMap;
-import java.util.List;
-
-import com.shinymayhem.radiometadata.JazzRadio;
-import com.shinymayhem.radiometadata.Parser;
-import com.shinymayhem.radiometadata.ShoutcastV1;
-
-public class MetadataParser {
-    
-    //TODO these should be ordered by most popular first
-    private final List<Parser> parsers = new ArrayList<Parser>(Arrays.asList(
-            new ShoutcastV1(),
-            new JazzRadio()
-    ));
-    protected Parser mParser;
-    protected String mUrl;
-    
-    /**
-     * Iterate through known metadata parsers, checking if they will parse this url, then parsing
-     * Fails silently
-     * @param url
-     * @return hashmap with keys from Parser and their values. empty hashmap on error or no data found
-     */
-    public HashMap<String, String> getMetadata(String url)
-    {
-        //TODO: check a cache first, with url as key
-        boolean parses = false;
-        HashMap<String, String> map;
-        for (Parser parser : parsers)
-        {
-            if (parser.parsesUrl(url))
-            {
-                mUrl = url;
-                mParser = parser;
-                parses = true;
-                break;
-            }
-        }
-        if (parses)
-        {
-            map = mParser.getMetadata(url);
-        }
-        else
-        {
-            map = new HashMap<String, String>();
-        }
-        return map;
-    }
-    
-}
+/*
+ * Copyright (C) 2013 Reese Wilson | Shiny Mayhem
+
+   Licensed under the Apache License, Version 2.0 (the "License");
+   you may not use this file except in compliance with the License.
+   You may obtain a copy of the License at
+
+       http://www.apache.org/licenses/LICENSE-2.0
+
+   Unless required by applicable law or agreed to in writing, software
+   distributed under the License is distributed on an "AS IS" BASIS,
+   WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+   See the License for the specific language governing permissions and
+   limitations under the License.
+*/
+package com.shinymayhem.radiopresets;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.concurrent.RejectedExecutionException;
+
+import android.os.SystemClock;
+import android.util.Log;
+
+import com.shinymayhem.radiometadata.Icecast;
+import com.shinymayhem.radiometadata.JazzRadio;
+import com.shinymayhem.radiometadata.Parser;
+import com.shinymayhem.radiometadata.ParserIndex;
+import com.shinymayhem.radiometadata.ParserProbe;
+import com.shinymayhem.radiometadata.ShoutcastV1;
+import com.shinymayhem.radiometadata.ShoutcastV2;
+import com.shinymayhem.radiometadata.TrackMetadata;
+
+public class MetadataParser {
+    private static final boolean LOCAL_LOGV = ActivityMain.LOCAL_LOGV;
+    private static final String TAG = "MetadataParser";
+    
+    //how long a url stays matched to the parser that accepted it, before probing again
+    public static final long CACHE_TTL = 30 * 60 * 1000;
+    //how long to remember that no parser handles a url
+    public static final long NEGATIVE_CACHE_TTL = 5 * 60 * 1000;
+    //empty polls in a row before the cached parser is doubted, e.g. a station that changed servers
+    public static final int MAX_EMPTY_POLLS = 5;
+    
+    //TODO these should be ordered by most popular first. order is the priority when more than one parser accepts a url
+    private static final List<Parser> sParsers = new ArrayList<Parser>(Arrays.asList(
+            new Icecast(),
+            new ShoutcastV2(),
+            new ShoutcastV1(),
+            new JazzRadio()
+    ));
+    //urls claimed by a parser are matched here, without probing
+    private static final ParserIndex sIndex = new ParserIndex(sParsers);
+    //shared by every MetadataParser, so polling doesn't probe the same url each time
+    private static final HashMap<String, CacheEntry> sCache = new HashMap<String, CacheEntry>();
+    //poll count and total milliseconds for each parser class
+    private static final HashMap<String, long[]> sTimings = new HashMap<String, long[]>();
+    protected Parser mParser;
+    protected String mUrl;
+    
+    /**
+     * Get the parser that handles this url, from cache if possible, otherwise by iterating through known metadata parsers
+     * Fails silently. Parsing failures, or too many empty polls in a row, remove the url from the cache
+     * @param url
+     * @return current track. TrackMetadata.EMPTY if no data found, TrackMetadata.FAILED on error
+     */
+    public TrackMetadata getMetadata(String url)
+    {
+        TrackMetadata track = TrackMetadata.EMPTY;
+        Parser parser = this.getParser(url);
+        if (parser != null)
+        {
+            long start = SystemClock.elapsedRealtime();
+            track = parser.getMetadata(url);
+            recordTiming(parser, SystemClock.elapsedRealtime() - start);
+            //a station between songs is empty too, so only doubt the parser if it failed or stays empty
+            if (track == TrackMetadata.FAILED || countEmpty(url, track.isEmpty()))
+            {
+                //parser might not handle the url anymore, probe again next time
+                invalidate(url);
+            }
+        }
+        return track;
+    }
+    
+    /**
+     * Find the parser for a url, checking the cache and static claims before probing
+     * @param url
+     * @return parser that handles the url, or null if none do
+     */
+    protected Parser getParser(String url)
+    {
+        mUrl = url;
+        CacheEntry entry = getCached(url);
+        if (entry != null)
+        {
+            mParser = entry.parser;
+            return mParser;
+        }
+        Parser found = sIndex.lookup(url);
+        if (found != null)
+        {
+            //claims don't change, no need to cache them
+            if (LOCAL_LOGV) Log.v(TAG, "claimed " + url + ":" + found.getClass().getSimpleName());
+            mParser = found;
+            return found;
+        }
+        //probes run in parallel, but the first parser in the list that accepts still wins
+        try
+        {
+            found = ParserProbe.probe(url, sIndex.getProbeParsers());
+        }
+        catch (RejectedExecutionException e)
+        {
+            //too busy to decide, so don't cache the answer; try again next poll
+            mParser = null;
+            return null;
+        }
+        if (LOCAL_LOGV) Log.v(TAG, "probed " + url + ":" + (found == null ? "none" : found.getClass().getSimpleName()));
+        putCached(url, found);
+        mParser = found;
+        return found;
+    }
+    
+    /**
+     * Keep a running count and total of poll times for each parser, and log them,
+     * so a change that makes a parser slower shows up in the log
+     * @param parser
+     * @param elapsed milliseconds spent in Parser.getMetadata(), including the request
+     */
+    private static void recordTiming(Parser parser, long elapsed)
+    {
+        String name = parser.getClass().getSimpleName();
+        long count;
+        long total;
+        synchronized (sTimings)
+        {
+            long[] timing = sTimings.get(name);
+            if (timing == null)
+            {
+                timing = new long[2];
+                sTimings.put(name, timing);
+            }
+            timing[0]++;
+            timing[1] += elapsed;
+            count = timing[0];
+            total = timing[1];
+        }
+        if (LOCAL_LOGV) Log.v(TAG, name + " poll took " + String.valueOf(elapsed) + "ms, average " +
+                String.valueOf(total / count) + "ms over " + String.valueOf(count) + " polls");
+    }
+    
+    private static CacheEntry getCached(String url)
+    {
+        synchronized (sCache)
+        {
+            CacheEntry entry = sCache.get(url);
+            if (entry != null && entry.expires <= SystemClock.elapsedRealtime())
+            {
+                sCache.remove(url);
+                entry = null;
+            }
+            return entry;
+        }
+    }
+    
+    private static void putCached(String url, Parser parser)
+    {
+        long ttl = (parser == null) ? NEGATIVE_CACHE_TTL : CACHE_TTL;
+        synchronized (sCache)
+        {
+            sCache.put(url, new CacheEntry(parser, SystemClock.elapsedRealtime() + ttl));
+        }
+    }
+    
+    /**
+     * Count empty polls in a row for a cached url
+     * @param url
+     * @param empty whether the last poll was empty
+     * @return whether there have been MAX_EMPTY_POLLS empty polls in a row
+     */
+    private static boolean countEmpty(String url, boolean empty)
+    {
+        synchronized (sCache)
+        {
+            CacheEntry entry = sCache.get(url);
+            if (entry == null)
+            {
+                return false;
+            }
+            entry.emptyPolls = empty ? entry.emptyPolls + 1 : 0;
+            return entry.emptyPolls >= MAX_EMPTY_POLLS;
+        }
+    }
+    
+    /**
+     * Forget which parser handles the url, e.g. after a failure
+     * @param url
+     */
+    public static void invalidate(String url)
+    {
+        synchronized (sCache)
+        {
+            sCache.remove(url);
+        }
+    }
+    
+    public static void clearCache()
+    {
+        synchronized (sCache)
+        {
+            sCache.clear();
+        }
+    }
+    
+    private static class CacheEntry
+    {
+        //null when no parser handles the url
+        final Parser parser;
+        final long expires;
+        //guarded by sCache
+        int emptyPolls = 0;
+        
+        CacheEntry(Parser parser, long expires)
+        {
+            this.parser = parser;
+            this.expires = expires;
+        }
+    }
+    
+}
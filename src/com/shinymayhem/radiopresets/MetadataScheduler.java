@@ -0,0 +1,165 @@
+/*
+ * Copyright (C) 2013 Reese Wilson | Shiny Mayhem
+
+   Licensed under the Apache License, Version 2.0 (the "License");
+   you may not use this file except in compliance with the License.
+   You may obtain a copy of the License at
+
+       http://www.apache.org/licenses/LICENSE-2.0
+
+   Unless required by applicable law or agreed to in writing, software
+   distributed under the License is distributed on an "AS IS" BASIS,
+   WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+   See the License for the specific language governing permissions and
+   limitations under the License.
+*/
+package com.shinymayhem.radiopresets;
+
+import java.util.HashMap;
+
+import android.os.SystemClock;
+import android.util.Log;
+
+import com.shinymayhem.radiometadata.TrackMetadata;
+
+/**
+ * Decides how long to wait before polling a station's metadata again. Learns how often each station's
+ * song changes, sleeps until shortly before the next change is expected, polls quickly around it, and
+ * backs off while nothing changes. Stations that never change (talk radio, no metadata) end up at MAX_INTERVAL
+ * @author Reese Wilson
+ *
+ */
+public class MetadataScheduler {
+    private static final boolean LOCAL_LOGV = ActivityMain.LOCAL_LOGV;
+    private static final String TAG = "MetadataScheduler";
+    
+    //fastest polling, used around an expected change
+    public static final long MIN_INTERVAL = 5 * 1000;
+    //polling while nothing is known about the station
+    public static final long BASE_INTERVAL = ServiceRadioPlayer.METADATA_REFRESH_INTERVAL;
+    public static final long MAX_INTERVAL = 5 * 60 * 1000;
+    //poll quickly from this long before until this long after an expected change
+    public static final long CHANGE_WINDOW = 20 * 1000;
+    //while quiet, wait this fraction of the time it has already been quiet. delays grow by 1.25x each poll,
+    //so a change is noticed at most a quarter of the quiet time late
+    private static final int BACKOFF_DIVISOR = 4;
+    //time between changes outside of this isn't a song length, so it isn't learned
+    private static final long MIN_CADENCE = 30 * 1000;
+    private static final long MAX_CADENCE = 30 * 60 * 1000;
+    //weight of the newest song length in the learned cadence
+    private static final float CADENCE_WEIGHT = 0.3f;
+    
+    private final HashMap<String, StationState> mStations = new HashMap<String, StationState>();
+    
+    /**
+     * Record the result of a poll. Empty and failed polls are misses, they say nothing about when the song changed
+     * @param url Streaming media url
+     * @param track what the poll found, or null if it was ignored
+     */
+    public void onPoll(String url, TrackMetadata track)
+    {
+        long now = SystemClock.elapsedRealtime();
+        StationState state = getState(url, now);
+        if (track == null || track.isEmpty())
+        {
+            return;
+        }
+        TrackMetadata previous = state.lastTrack;
+        state.lastTrack = track;
+        if (previous == null)
+        {
+            //first track only finds out what is playing, the song didn't start now
+            return;
+        }
+        if (track.equals(previous))
+        {
+            return;
+        }
+        if (state.lastChange > 0)
+        {
+            long interval = now - state.lastChange;
+            if (interval >= MIN_CADENCE && interval <= MAX_CADENCE)
+            {
+                state.cadence = (state.cadence < 0) ? interval : (long)(state.cadence * (1 - CADENCE_WEIGHT) + interval * CADENCE_WEIGHT);
+                if (LOCAL_LOGV) Log.v(TAG, "cadence for " + url + ":" + String.valueOf(state.cadence / 1000) + "s");
+            }
+        }
+        state.lastChange = now;
+    }
+    
+    /**
+     * @param url Streaming media url
+     * @return milliseconds until the next poll
+     */
+    public long getNextDelay(String url)
+    {
+        long now = SystemClock.elapsedRealtime();
+        StationState state = getState(url, now);
+        long delay;
+        if (state.cadence > 0 && state.lastChange > 0)
+        {
+            long untilChange = state.lastChange + state.cadence - now;
+            if (untilChange > CHANGE_WINDOW)
+            {
+                //sleep until the window opens
+                delay = untilChange - CHANGE_WINDOW;
+            }
+            else if (untilChange > -CHANGE_WINDOW)
+            {
+                delay = MIN_INTERVAL;
+            }
+            else
+            {
+                //song is running long, back off from the end of the window
+                delay = Math.max(BASE_INTERVAL, (-untilChange - CHANGE_WINDOW) / BACKOFF_DIVISOR);
+            }
+        }
+        else
+        {
+            //no cadence yet, back off from the last change, or from the first poll
+            long since = (state.lastChange > 0) ? state.lastChange : state.firstPoll;
+            delay = Math.max(BASE_INTERVAL, (now - since) / BACKOFF_DIVISOR);
+        }
+        return Math.min(MAX_INTERVAL, Math.max(MIN_INTERVAL, delay));
+    }
+    
+    /**
+     * Call when playback of a station starts or restarts. The learned cadence is kept, but when the
+     * current song started isn't known anymore, so polling starts over from BASE_INTERVAL
+     * @param url Streaming media url
+     */
+    public void onStart(String url)
+    {
+        long now = SystemClock.elapsedRealtime();
+        StationState state = getState(url, now);
+        state.firstPoll = now;
+        state.lastChange = -1;
+        state.lastTrack = null;
+    }
+    
+    private StationState getState(String url, long now)
+    {
+        StationState state = mStations.get(url);
+        if (state == null)
+        {
+            state = new StationState(now);
+            mStations.put(url, state);
+        }
+        return state;
+    }
+    
+    private static class StationState
+    {
+        long firstPoll;
+        //-1 until seen
+        long lastChange = -1;
+        long cadence = -1;
+        //last non-empty track polled, null until seen
+        TrackMetadata lastTrack = null;
+        
+        StationState(long firstPoll)
+        {
+            this.firstPoll = firstPoll;
+        }
+    }
+}
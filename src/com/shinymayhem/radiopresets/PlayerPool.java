@@ -0,0 +1,551 @@
+/*
+ * Copyright (C) 2013 Reese Wilson | Shiny Mayhem
+
+   Licensed under the Apache License, Version 2.0 (the "License");
+   you may not use this file except in compliance with the License.
+   You may obtain a copy of the License at
+
+       http://www.apache.org/licenses/LICENSE-2.0
+
+   Unless required by applicable law or agreed to in writing, software
+   distributed under the License is distributed on an "AS IS" BASIS,
+   WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+   See the License for the specific language governing permissions and
+   limitations under the License.
+*/
+package com.shinymayhem.radiopresets;
+
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.util.HashMap;
+import java.util.LinkedList;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadFactory;
+
+import android.content.Context;
+import android.database.Cursor;
+import android.media.AudioManager;
+import android.media.MediaPlayer;
+import android.media.MediaPlayer.OnErrorListener;
+import android.media.MediaPlayer.OnPreparedListener;
+import android.os.Handler;
+
+import com.shinymayhem.radiopresets.PlaylistResolver.AudioType;
+import com.shinymayhem.radiopresets.PlaylistResolver.StreamHttpException;
+
+/**
+ * Keeps a prepared but paused MediaPlayer for the preset most likely to be played next, so switching to it
+ * can start right away instead of waiting for prepareAsync(). The likely preset is the one most often switched
+ * to from the playing station in the track history, or the most played one if there aren't any switches yet.
+ * A paused player stops reading its stream, and servers drop listeners that fall behind, so the standby is
+ * prepared again every STANDBY_TIME while the budget lasts, and only on an unmetered network
+ * @author Reese Wilson
+ *
+ */
+public class PlayerPool {
+    private static final boolean LOCAL_LOGV = ActivityMain.LOCAL_LOGV;
+    private static final boolean LOCAL_LOGD = ActivityMain.LOCAL_LOGD;
+    private static final String TAG = "PlayerPool";
+    
+    public static final long STANDBY_TIME = 60 * 1000;
+    //standby players prepared per BUDGET_PERIOD
+    public static final int MAX_PREPARES = 30;
+    public static final long BUDGET_PERIOD = 60 * 60 * 1000;
+    //newest history rows looked at when picking the likely preset
+    public static final int HISTORY_SCAN = 1000;
+    
+    public interface Listener
+    {
+        /**
+         * @param streamUrl Streaming media url
+         * @return proxy for the standby player, not started yet, or null to have the player connect directly
+         */
+        public ProxyStream createProxy(String streamUrl);
+        
+        /**
+         * The likely preset's url was resolved to pick its stream
+         * @param stationUrl url saved for the station
+         * @param streamUrl streaming media url
+         * @param format type of the station url, e.g. PLS
+         */
+        public void onResolved(String stationUrl, String streamUrl, AudioType format);
+    }
+    
+    /**
+     * A player for a stream that hasn't been started
+     */
+    public static class Standby
+    {
+        private final int mPreset;
+        private final String mStreamUrl;
+        private final MediaPlayer mPlayer;
+        private final ProxyStream mProxy;
+        private boolean mPrepared = false;
+        
+        Standby(int preset, String streamUrl, MediaPlayer player, ProxyStream proxy)
+        {
+            mPreset = preset;
+            mStreamUrl = streamUrl;
+            mPlayer = player;
+            mProxy = proxy;
+        }
+        
+        public int getPreset()
+        {
+            return mPreset;
+        }
+        
+        public MediaPlayer getPlayer()
+        {
+            return mPlayer;
+        }
+        
+        /**
+         * @return proxy the player reads from, or null if it connects directly
+         */
+        public ProxyStream getProxy()
+        {
+            return mProxy;
+        }
+        
+        /**
+         * @return false while prepareAsync() is still running. Its listeners need replacing either way
+         */
+        public boolean isPrepared()
+        {
+            return mPrepared;
+        }
+    }
+    
+    private final Context mContext;
+    protected ActivityLogger mLogger;
+    private final Listener mListener;
+    private final Handler mHandler = new Handler();
+    //picks can resolve a playlist over the network, so they get their own thread instead of the AsyncTask one
+    private final ExecutorService mExecutor = Executors.newSingleThreadExecutor(new PoolThreadFactory());
+    private Standby mStandby;
+    private String mPlayingUrl;
+    private int mGeneration = 0;
+    private PickTask mPick;
+    private final LinkedList<Long> mPrepares = new LinkedList<Long>();
+    
+    private final Runnable mExpire = new Runnable() {
+        @Override
+        public void run() {
+            if (LOCAL_LOGV) log("standby player expired", "v");
+            releaseStandby();
+            pick();
+        }
+    };
+    
+    public PlayerPool(Context context, Listener listener)
+    {
+        mContext = context.getApplicationContext();
+        mLogger = new ActivityLogger(mContext);
+        mListener = listener;
+    }
+    
+    /**
+     * Prepare a standby player for the preset most likely to follow the playing station, in the background
+     * @param playingUrl url saved for the playing station
+     */
+    public void refresh(String playingUrl)
+    {
+        mPlayingUrl = playingUrl;
+        pick();
+    }
+    
+    /**
+     * Take the standby player if it is for the stream, leaving the pool empty.
+     * The caller is responsible for its listeners and for releasing it
+     * @param streamUrl Streaming media url
+     * @return standby for the stream, or null
+     */
+    public Standby take(String streamUrl)
+    {
+        if (mStandby == null || !mStandby.mStreamUrl.equals(streamUrl))
+        {
+            return null;
+        }
+        Standby standby = mStandby;
+        mStandby = null;
+        mHandler.removeCallbacks(mExpire);
+        if (LOCAL_LOGD) log("taking standby player for preset " + String.valueOf(standby.mPreset) + (standby.mPrepared ? "" : ", still preparing"), "d");
+        return standby;
+    }
+    
+    /**
+     * Release the standby player and stop picking a new one, until the next refresh
+     */
+    public void release()
+    {
+        mGeneration++;
+        mPlayingUrl = null;
+        if (mPick != null)
+        {
+            mPick.cancel();
+            mPick = null;
+        }
+        releaseStandby();
+    }
+    
+    public void shutdown()
+    {
+        release();
+        mExecutor.shutdownNow();
+    }
+    
+    //pick the likely preset in the background, then prepare a player for it
+    private void pick()
+    {
+        mGeneration++;
+        if (mPick != null)
+        {
+            mPick.cancel();
+            mPick = null;
+        }
+        if (mPlayingUrl == null)
+        {
+            return;
+        }
+        if (!PresetWarmer.isUnmetered(mContext))
+        {
+            if (LOCAL_LOGV) log("metered network, releasing standby player", "v");
+            releaseStandby();
+            return;
+        }
+        if (!hasBudget())
+        {
+            if (LOCAL_LOGD) log("standby budget used up", "d");
+            return;
+        }
+        mPick = new PickTask(mGeneration, mPlayingUrl);
+        mPick.start();
+    }
+    
+    private void prepare(int preset, String streamUrl)
+    {
+        if (mStandby != null && mStandby.mStreamUrl.equals(streamUrl) && mStandby.mPreset == preset)
+        {
+            //still fresh, keep it until it expires
+            return;
+        }
+        releaseStandby();
+        mPrepares.addLast(System.currentTimeMillis());
+        if (LOCAL_LOGD) log("preparing standby player for preset " + String.valueOf(preset), "d");
+        
+        MediaPlayer player = new MediaPlayer();
+        player.setAudioStreamType(AudioManager.STREAM_MUSIC);
+        ProxyStream proxy = mListener.createProxy(streamUrl);
+        String dataSource = streamUrl;
+        if (proxy != null)
+        {
+            try
+            {
+                dataSource = proxy.start();
+            }
+            catch (IOException e)
+            {
+                if (LOCAL_LOGD) log("starting standby proxy failed, connecting directly", "d");
+                proxy = null;
+            }
+        }
+        final Standby standby = new Standby(preset, streamUrl, player, proxy);
+        player.setOnPreparedListener(new OnPreparedListener() {
+            @Override
+            public void onPrepared(MediaPlayer mediaPlayer) {
+                if (LOCAL_LOGV) log("standby player prepared", "v");
+                standby.mPrepared = true;
+            }
+        });
+        player.setOnErrorListener(new OnErrorListener() {
+            @Override
+            public boolean onError(MediaPlayer mediaPlayer, int what, int extra) {
+                if (LOCAL_LOGD) log("standby player failed, " + String.valueOf(what) + ":" + String.valueOf(extra), "d");
+                if (mStandby == standby)
+                {
+                    releaseStandby();
+                }
+                return true;
+            }
+        });
+        try
+        {
+            player.setDataSource(dataSource);
+            player.prepareAsync();
+        }
+        catch (IOException e)
+        {
+            log("setting standby data source failed", "w");
+            release(standby);
+            return;
+        }
+        catch (IllegalStateException e)
+        {
+            log("standby player in wrong state to prepare", "w");
+            release(standby);
+            return;
+        }
+        mStandby = standby;
+        mHandler.postDelayed(mExpire, STANDBY_TIME);
+    }
+    
+    private void releaseStandby()
+    {
+        mHandler.removeCallbacks(mExpire);
+        if (mStandby != null)
+        {
+            release(mStandby);
+            mStandby = null;
+        }
+    }
+    
+    private void release(Standby standby)
+    {
+        //never started, nothing to stop
+        try
+        {
+            standby.mPlayer.reset();
+        }
+        catch (IllegalStateException e)
+        {
+            if (LOCAL_LOGV) log("standby player in wrong state to reset", "v");
+        }
+        standby.mPlayer.release();
+        if (standby.mProxy != null)
+        {
+            standby.mProxy.stop();
+        }
+    }
+    
+    private boolean hasBudget()
+    {
+        long now = System.currentTimeMillis();
+        while (!mPrepares.isEmpty() && now - mPrepares.getFirst() > BUDGET_PERIOD)
+        {
+            mPrepares.removeFirst();
+        }
+        return mPrepares.size() < MAX_PREPARES;
+    }
+    
+    /**
+     * The likely preset and its stream
+     */
+    private static class Pick
+    {
+        int preset;
+        String stationUrl;
+        String streamUrl;
+        //set if the station url was resolved for this pick
+        AudioType format;
+    }
+    
+    private class PickTask implements Runnable
+    {
+        private final int mGeneration;
+        private final String mPlayingUrl;
+        //kept so cancel() can disconnect it, blocking reads ignore interrupts
+        private final PlaylistResolver mResolver;
+        private Future<?> mFuture;
+        private volatile boolean mCancelled = false;
+        
+        PickTask(int generation, String playingUrl)
+        {
+            mGeneration = generation;
+            mPlayingUrl = playingUrl;
+            mResolver = new PlaylistResolver(mContext);
+        }
+        
+        void start()
+        {
+            mFuture = mExecutor.submit(this);
+        }
+        
+        void cancel()
+        {
+            mCancelled = true;
+            mResolver.cancel();
+            if (mFuture != null)
+            {
+                mFuture.cancel(true);
+            }
+        }
+        
+        @Override
+        public void run() {
+            final Pick pick = pickPreset();
+            if (mCancelled)
+            {
+                return;
+            }
+            mHandler.post(new Runnable() {
+                @Override
+                public void run() {
+                    onPicked(pick);
+                }
+            });
+        }
+        
+        //on the pick thread
+        private Pick pickPreset()
+        {
+            String stationUrl = pickStation();
+            if (stationUrl == null || mCancelled)
+            {
+                return null;
+            }
+            
+            String[] projection = {DbContractRadio.EntryStation.COLUMN_NAME_PRESET_NUMBER, DbContractRadio.EntryStation.COLUMN_NAME_STREAM_URL,
+                    DbContractRadio.EntryStation.COLUMN_NAME_DATE_RESOLVED};
+            String selection = DbContractRadio.EntryStation.COLUMN_NAME_URL + " = ?";
+            String[] selectionArgs = {stationUrl};
+            String sortOrder = DbContractRadio.EntryStation.COLUMN_NAME_PRESET_NUMBER;
+            Cursor cursor = mContext.getContentResolver().query(ContentProviderRadio.CONTENT_URI_STATIONS, projection, selection, selectionArgs, sortOrder);
+            Pick pick = null;
+            if (cursor.moveToFirst())
+            {
+                pick = new Pick();
+                pick.preset = (int)cursor.getLong(cursor.getColumnIndexOrThrow(DbContractRadio.EntryStation.COLUMN_NAME_PRESET_NUMBER));
+                pick.stationUrl = stationUrl;
+                pick.streamUrl = cursor.getString(cursor.getColumnIndexOrThrow(DbContractRadio.EntryStation.COLUMN_NAME_STREAM_URL));
+                long resolved = cursor.getLong(cursor.getColumnIndexOrThrow(DbContractRadio.EntryStation.COLUMN_NAME_DATE_RESOLVED));
+                if (pick.streamUrl != null && System.currentTimeMillis() - resolved > ServiceRadioPlayer.STREAM_REVALIDATE_AGE)
+                {
+                    pick.streamUrl = null;
+                }
+            }
+            cursor.close();
+            if (pick == null || pick.streamUrl != null)
+            {
+                return pick;
+            }
+            
+            try
+            {
+                PlaylistResolver.Result result = mResolver.resolve(stationUrl);
+                if (result.getFormat().equals(AudioType.AAC) || result.getFormat().equals(AudioType.AACP))
+                {
+                    return null;
+                }
+                pick.streamUrl = result.getUrl();
+                pick.format = result.getFormat();
+                return pick;
+            }
+            catch (InterruptedIOException e)
+            {
+                if (LOCAL_LOGV) log("Resolving standby station cancelled", "v");
+            }
+            catch (IOException e)
+            {
+                if (LOCAL_LOGD) log("Resolving standby station failed: " + e.getMessage(), "d");
+            }
+            catch (StreamHttpException e)
+            {
+                if (LOCAL_LOGD) log("Resolving standby station failed: " + String.valueOf(e.getResponseCode()), "d");
+            }
+            return null;
+        }
+        
+        //most switched to from the playing station, then most played, in the newest history
+        private String pickStation()
+        {
+            String[] projection = {DbContractRadio.EntryHistory.COLUMN_NAME_STATION_URL};
+            String selection = null;
+            String[] selectionArgs = null;
+            String sortOrder = DbContractRadio.EntryHistory.COLUMN_NAME_DATE_PLAYED + " DESC";
+            Cursor cursor = mContext.getContentResolver().query(ContentProviderRadio.CONTENT_URI_HISTORY, projection, selection, selectionArgs, sortOrder);
+            HashMap<String, Integer> switches = new HashMap<String, Integer>();
+            HashMap<String, Integer> plays = new HashMap<String, Integer>();
+            int column = cursor.getColumnIndexOrThrow(DbContractRadio.EntryHistory.COLUMN_NAME_STATION_URL);
+            //rows are newest first, so the row after a station is the one played before it
+            String later = null;
+            int rows = 0;
+            while (cursor.moveToNext() && rows < HISTORY_SCAN && !mCancelled)
+            {
+                rows++;
+                String url = cursor.getString(column);
+                if (url == null)
+                {
+                    continue;
+                }
+                if (!url.equals(mPlayingUrl))
+                {
+                    increment(plays, url);
+                }
+                if (later != null && !later.equals(url) && url.equals(mPlayingUrl))
+                {
+                    increment(switches, later);
+                }
+                later = url;
+            }
+            cursor.close();
+            String station = mostFrequent(switches);
+            if (station == null)
+            {
+                station = mostFrequent(plays);
+            }
+            if (LOCAL_LOGV) log("likely next station:" + station + " from " + String.valueOf(rows) + " history rows", "v");
+            return station;
+        }
+        
+        //on the creating thread
+        private void onPicked(Pick pick)
+        {
+            if (mCancelled || mGeneration != PlayerPool.this.mGeneration)
+            {
+                return;
+            }
+            mPick = null;
+            if (pick == null)
+            {
+                return;
+            }
+            if (pick.format != null)
+            {
+                mListener.onResolved(pick.stationUrl, pick.streamUrl, pick.format);
+            }
+            prepare(pick.preset, pick.streamUrl);
+        }
+    }
+    
+    private static class PoolThreadFactory implements ThreadFactory
+    {
+        @Override
+        public Thread newThread(Runnable runnable) {
+            Thread thread = new Thread(runnable, TAG);
+            thread.setDaemon(true);
+            //picks shouldn't compete with the playing stream
+            thread.setPriority(Thread.MIN_PRIORITY);
+            return thread;
+        }
+    }
+    
+    private static void increment(HashMap<String, Integer> counts, String key)
+    {
+        Integer count = counts.get(key);
+        counts.put(key, count == null ? 1 : count + 1);
+    }
+    
+    private static String mostFrequent(HashMap<String, Integer> counts)
+    {
+        String most = null;
+        int max = 0;
+        for (String key : counts.keySet())
+        {
+            int count = counts.get(key);
+            if (count > max)
+            {
+                max = count;
+                most = key;
+            }
+        }
+        return most;
+    }
+    
+    private void log(String text, String level)
+    {
+        mLogger.log(TAG, text, level);
+    }
+}
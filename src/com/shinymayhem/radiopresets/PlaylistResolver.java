@@ -0,0 +1,775 @@
+/*
+ * Copyright (C) 2013 Reese Wilson | Shiny Mayhem
+
+   Licensed under the Apache License, Version 2.0 (the "License");
+   you may not use this file except in compliance with the License.
+   You may obtain a copy of the License at
+
+       http://www.apache.org/licenses/LICENSE-2.0
+
+   Unless required by applicable law or agreed to in writing, software
+   distributed under the License is distributed on an "AS IS" BASIS,
+   WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+   See the License for the specific language governing permissions and
+   limitations under the License.
+*/
+package com.shinymayhem.radiopresets;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.InterruptedIOException;
+import java.net.HttpURLConnection;
+import java.net.MalformedURLException;
+import java.net.URL;
+import java.nio.charset.Charset;
+import java.nio.charset.IllegalCharsetNameException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CompletionService;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorCompletionService;
+import java.util.concurrent.Future;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import android.content.Context;
+
+import org.apache.http.HttpException;
+
+import com.shinymayhem.radiometadata.SharedHttpClient;
+
+/**
+ * Turns a station url into a streaming media url. Playlists are followed into nested playlists, up to
+ * MAX_DEPTH levels and never into a playlist already visited. All entries of the first playlist are probed at once,
+ * with short timeouts, and the first that answers with audio wins, so a dead first mirror doesn't fail the play.
+ * Entries of nested playlists are tried in order on the probe's own thread.
+ * One resolver per station url, so cancel() only stops that resolution
+ * @author Reese Wilson
+ *
+ */
+public class PlaylistResolver {
+    private static final boolean LOCAL_LOGV = ActivityMain.LOCAL_LOGV;
+    private static final boolean LOCAL_LOGD = ActivityMain.LOCAL_LOGD;
+    private static final String TAG = "PlaylistResolver";
+    
+    public static final int MAX_DEPTH = 3;
+    //entries probed per playlist
+    public static final int MAX_CANDIDATES = 8;
+    public static final int PROBE_CONNECT_TIMEOUT = 4000;
+    public static final int PROBE_READ_TIMEOUT = 6000;
+    //give up on a playlist's entries after this long
+    public static final long PROBE_TIMEOUT = 20 * 1000;
+    
+    //M3U8 is an HLS playlist, which the player reads itself
+    public enum AudioType {MP3, M3U, M3U8, PLS, XSPF, AAC, AACP, OGG, FLAC, UNKNOWN};
+    
+    //shared by every resolver. probes never wait on other probes, so extra ones just queue
+    private static final ThreadPoolExecutor sExecutor;
+    static
+    {
+        sExecutor = new ThreadPoolExecutor(MAX_CANDIDATES, MAX_CANDIDATES, 30, TimeUnit.SECONDS,
+                new LinkedBlockingQueue<Runnable>(), new ResolverThreadFactory());
+        sExecutor.allowCoreThreadTimeOut(true);
+    }
+    
+    protected ActivityLogger mLogger;
+    private volatile boolean mCancelled = false;
+    //open connections, disconnected on cancel since blocking reads ignore interrupts
+    private final List<HttpURLConnection> mConnections = Collections.synchronizedList(new ArrayList<HttpURLConnection>());
+    
+    public PlaylistResolver(Context context)
+    {
+        mLogger = new ActivityLogger(context);
+    }
+    
+    public static class Result
+    {
+        private final String mUrl;
+        private final AudioType mFormat;
+        private final AudioType mStreamType;
+        
+        Result(String url, AudioType format, AudioType streamType)
+        {
+            mUrl = url;
+            mFormat = format;
+            mStreamType = streamType;
+        }
+        
+        /**
+         * @return streaming media url
+         */
+        public String getUrl()
+        {
+            return mUrl;
+        }
+        
+        /**
+         * @return type of the url that was resolved, e.g. PLS
+         */
+        public AudioType getFormat()
+        {
+            return mFormat;
+        }
+        
+        /**
+         * @return type of the stream, UNKNOWN if it couldn't be told
+         */
+        public AudioType getStreamType()
+        {
+            return mStreamType;
+        }
+    }
+    
+    /**
+     * Stop resolving, from any thread. resolve() fails with an InterruptedIOException
+     */
+    public void cancel()
+    {
+        mCancelled = true;
+        synchronized (mConnections)
+        {
+            for (HttpURLConnection connection : mConnections)
+            {
+                SharedHttpClient.release(connection);
+            }
+            mConnections.clear();
+        }
+    }
+    
+    /**
+     * @param url station url
+     * @return stream to play
+     * @throws StreamHttpException if the url answers with an error
+     * @throws IOException if the url can't be read, or none of a playlist's entries play
+     */
+    public Result resolve(String url) throws IOException, StreamHttpException
+    {
+        Result stream = resolve(url, 0, new HashSet<String>(), false, true);
+        if (LOCAL_LOGD) log("Resolved " + url + " to " + stream.getUrl(), "d");
+        return stream;
+    }
+    
+    /**
+     * @param url
+     * @param depth playlists followed to get here
+     * @param visited urls already followed on the way here
+     * @param probe whether the url is a playlist entry, which has to answer with audio to count
+     * @param parallel whether a playlist's entries can be probed on the executor, false on a probe thread
+     */
+    private Result resolve(String url, int depth, Set<String> visited, boolean probe, boolean parallel) throws IOException, StreamHttpException
+    {
+        visited.add(url);
+        //check url first, it is fastest, no network connections needed.
+        //.m3u8 can be a plain playlist or HLS, only the content tells
+        AudioType type = getTypeFromString(url);
+        boolean known = !type.equals(AudioType.UNKNOWN) && !type.equals(AudioType.M3U8);
+        if (known && !probe && !isPlaylistType(type))
+        {
+            return new Result(url, type, type);
+        }
+        
+        Response response = open(url, probe);
+        List<String> entries;
+        try
+        {
+            if (!known)
+            {
+                type = detect(response);
+            }
+            if (!isPlaylistType(type))
+            {
+                if (probe && type.equals(AudioType.UNKNOWN))
+                {
+                    throw new IOException("Not an audio stream: " + url);
+                }
+                return new Result(url, type, type);
+            }
+            String charset = getCharset(response.connection.getContentType(), type, url);
+            entries = readEntries(type, response.stream, charset, url);
+            response.drained = true;
+        }
+        finally
+        {
+            response.close();
+            mConnections.remove(response.connection);
+        }
+        if (depth >= MAX_DEPTH)
+        {
+            throw new IOException("Playlists nested too deep at " + url);
+        }
+        Result stream = probeEntries(entries, depth + 1, visited, parallel);
+        return new Result(stream.getUrl(), type, stream.getStreamType());
+    }
+    
+    private AudioType detect(Response response) throws IOException
+    {
+        //the first few kB identify the stream better than the headers, servers often send the wrong type.
+        //the bytes are kept for reading a playlist afterwards
+        response.stream.mark(StreamSniffer.SNIFF_BYTES);
+        AudioType type = StreamSniffer.sniff(response.stream);
+        response.stream.reset();
+        if (LOCAL_LOGV) log("Sniffed type:" + type.toString(), "v");
+        
+        Map<String, List<String>> headers = response.connection.getHeaderFields();
+        if (type.equals(AudioType.UNKNOWN) && headers.containsKey("Content-Type"))
+        {
+            for (String contentType : headers.get("Content-Type"))
+            {
+                if (LOCAL_LOGD) log("Content-Type:" + contentType, "d");
+                type = getTypeFromContentType(contentType);
+                if (!type.equals(AudioType.UNKNOWN)) //found type
+                {
+                    break;
+                }
+            }
+        }
+        //if it still can't find it, try one last time in the disposition
+        if (type.equals(AudioType.UNKNOWN) && headers.containsKey("Content-Disposition"))
+        {
+            for (String disposition : headers.get("Content-Disposition"))
+            {
+                if (LOCAL_LOGD) log("Disposition:" + disposition, "d");
+                type = getTypeFromString(disposition);
+                if (!type.equals(AudioType.UNKNOWN)) //found type
+                {
+                    break;
+                }
+            }
+        }
+        return type;
+    }
+    
+    /**
+     * Probe entries, and return the first to resolve to audio
+     * @param parallel whether to probe them at once on the executor, or in order on this thread
+     */
+    private Result probeEntries(List<String> entries, int depth, Set<String> visited, boolean parallel) throws IOException, StreamHttpException
+    {
+        List<String> candidates = new ArrayList<String>();
+        for (String entry : entries)
+        {
+            if (!visited.contains(entry) && !candidates.contains(entry))
+            {
+                candidates.add(entry);
+            }
+            if (candidates.size() >= MAX_CANDIDATES)
+            {
+                break;
+            }
+        }
+        if (candidates.isEmpty())
+        {
+            throw new IOException("No playable entries in playlist");
+        }
+        if (candidates.size() == 1)
+        {
+            return resolve(candidates.get(0), depth, visited, true, parallel);
+        }
+        if (!parallel)
+        {
+            return resolveInOrder(candidates, depth, visited);
+        }
+        
+        CompletionService<Result> completion = new ExecutorCompletionService<Result>(sExecutor);
+        List<Future<Result>> futures = new ArrayList<Future<Result>>(candidates.size());
+        for (final String candidate : candidates)
+        {
+            //each branch has its own path, the same playlist can be reached through two mirrors
+            final Set<String> path = new HashSet<String>(visited);
+            final int entryDepth = depth;
+            futures.add(completion.submit(new Callable<Result>() {
+                @Override
+                public Result call() throws IOException, StreamHttpException {
+                    //nested playlists stay on this thread, so a probe never waits for a free one
+                    return resolve(candidate, entryDepth, path, true, false);
+                }
+            }));
+        }
+        
+        Exception failure = null;
+        long deadline = System.currentTimeMillis() + PROBE_TIMEOUT;
+        try
+        {
+            for (int done = 0; done < candidates.size(); done++)
+            {
+                Future<Result> future = completion.poll(deadline - System.currentTimeMillis(), TimeUnit.MILLISECONDS);
+                if (future == null)
+                {
+                    if (LOCAL_LOGD) log("Timed out probing playlist entries", "d");
+                    break;
+                }
+                try
+                {
+                    return future.get();
+                }
+                catch (ExecutionException e)
+                {
+                    if (LOCAL_LOGV) log("Entry failed: " + e.getCause().getMessage(), "v");
+                    //an http error is more useful to report than a timeout
+                    if (failure == null || e.getCause() instanceof StreamHttpException)
+                    {
+                        failure = (Exception)e.getCause();
+                    }
+                }
+            }
+        }
+        catch (InterruptedException e)
+        {
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException("Resolution cancelled");
+        }
+        finally
+        {
+            for (Future<Result> future : futures)
+            {
+                future.cancel(true);
+            }
+        }
+        if (failure instanceof StreamHttpException)
+        {
+            throw (StreamHttpException)failure;
+        }
+        if (failure instanceof IOException)
+        {
+            throw (IOException)failure;
+        }
+        throw new IOException("No playlist entry answered");
+    }
+    
+    /**
+     * Try entries one at a time, for a playlist found while already probing
+     */
+    private Result resolveInOrder(List<String> candidates, int depth, Set<String> visited) throws IOException, StreamHttpException
+    {
+        IOException failure = null;
+        StreamHttpException httpFailure = null;
+        for (String candidate : candidates)
+        {
+            if (mCancelled || Thread.currentThread().isInterrupted())
+            {
+                throw new InterruptedIOException("Resolution cancelled");
+            }
+            try
+            {
+                return resolve(candidate, depth, new HashSet<String>(visited), true, false);
+            }
+            catch (InterruptedIOException e)
+            {
+                throw e;
+            }
+            catch (IOException e)
+            {
+                if (LOCAL_LOGV) log("Entry failed: " + e.getMessage(), "v");
+                failure = e;
+            }
+            catch (StreamHttpException e)
+            {
+                if (LOCAL_LOGV) log("Entry failed: " + e.getMessage(), "v");
+                httpFailure = e;
+            }
+        }
+        //an http error is more useful to report than a timeout
+        if (httpFailure != null)
+        {
+            throw httpFailure;
+        }
+        throw failure;
+    }
+    
+    private Response open(String url, boolean probe) throws IOException, StreamHttpException
+    {
+        if (mCancelled)
+        {
+            throw new InterruptedIOException("Resolution cancelled");
+        }
+        HttpURLConnection con = SharedHttpClient.open(url);
+        if (probe)
+        {
+            con.setConnectTimeout(PROBE_CONNECT_TIMEOUT);
+            con.setReadTimeout(PROBE_READ_TIMEOUT);
+        }
+        mConnections.add(con);
+        try
+        {
+            con.connect();
+        }
+        catch (IOException e)
+        {
+            mConnections.remove(con);
+            throw e;
+        }
+        Map<String, List<String>> headers = con.getHeaderFields();
+        List<String> status = headers.get(null);
+        //Shoutcast servers answer with "ICY 200 OK", which HttpURLConnection doesn't parse
+        String statusLine = status != null && !status.isEmpty() ? status.get(0) : "";
+        String message = statusLine;
+        int responseCode = -1;
+        if (statusLine.startsWith("HTTP/1.") || statusLine.startsWith("ICY")) {
+            int codePos = statusLine.indexOf(' ');
+            if (codePos > 0) {
+
+                int phrasePos = statusLine.indexOf(' ', codePos+1);
+                if (phrasePos > 0 && phrasePos < statusLine.length()) {
+                    message = statusLine.substring(phrasePos+1);
+                }
+
+                if (phrasePos < 0)
+                    phrasePos = statusLine.length();
+
+                try {
+                    responseCode = Integer.parseInt(statusLine.substring(codePos+1, phrasePos));
+                } catch (NumberFormatException e) { }
+            }
+        }
+        if (LOCAL_LOGD) log("Server response code:" + String.valueOf(responseCode) + ", message:" +  message + " for " + url, "d");
+        if (responseCode < 200 || responseCode >= 300)
+        {
+            SharedHttpClient.release(con);
+            mConnections.remove(con);
+            throw new StreamHttpException(responseCode, message);
+        }
+        //playlists are small, so the cap only stops a misdetected audio stream from being read forever
+        return new Response(con, new BufferedInputStream(SharedHttpClient.getBody(con), StreamSniffer.SNIFF_BYTES));
+    }
+    
+    /**
+     * @param contentType Content-Type header, can be null
+     * @param type playlist type
+     * @param url playlist url
+     * @return charset from the Content-Type, otherwise UTF-8 for m3u8 and xspf, which are defined as UTF-8,
+     * and ISO-8859-1 for older playlists
+     */
+    static String getCharset(String contentType, AudioType type, String url)
+    {
+        if (contentType != null)
+        {
+            for (String parameter : contentType.split(";"))
+            {
+                parameter = parameter.trim();
+                if (parameter.regionMatches(true, 0, "charset=", 0, 8))
+                {
+                    String charset = parameter.substring(8).replace("\"", "").trim();
+                    try
+                    {
+                        if (Charset.isSupported(charset))
+                        {
+                            return charset;
+                        }
+                    }
+                    catch (IllegalCharsetNameException e)
+                    {
+                        //fall back to the default
+                    }
+                }
+            }
+        }
+        if (type.equals(AudioType.XSPF) || getTypeFromString(url).equals(AudioType.M3U8))
+        {
+            return "UTF-8";
+        }
+        return "ISO-8859-1";
+    }
+    
+    private List<String> readEntries(AudioType type, InputStream stream, String charset, String url) throws IOException
+    {
+        if (LOCAL_LOGD) log("Get URLs from " + type.toString() + " in " + charset, "d");
+        List<String> entries = new ArrayList<String>();
+        BufferedReader reader = new BufferedReader(new InputStreamReader(stream, charset));
+        String line;
+        if (type.equals(AudioType.XSPF))
+        {
+            StringBuilder document = new StringBuilder();
+            while ((line = reader.readLine()) != null)
+            {
+                document.append(line).append('\n');
+            }
+            getXspfLocations(document.toString(), url, entries);
+            return entries;
+        }
+        while ((line = reader.readLine()) != null)
+        {
+            if (LOCAL_LOGV) log("read line:" + line, "v");
+            line = line.trim();
+            String entry = null;
+            if (type.equals(AudioType.PLS))
+            {
+                //File1=, File2=, ...
+                if (line.regionMatches(true, 0, "File", 0, 4) && line.indexOf('=') > 0)
+                {
+                    entry = line.substring(line.indexOf('=') + 1);
+                }
+            }
+            else if (line.length() > 0 && !line.startsWith("#"))
+            {
+                entry = line;
+            }
+            addEntry(entries, url, entry);
+        }
+        return entries;
+    }
+    
+    private void getXspfLocations(String document, String url, List<String> entries)
+    {
+        String lower = document.toLowerCase(Locale.US);
+        int start = 0;
+        while ((start = lower.indexOf("<location>", start)) >= 0)
+        {
+            start += "<location>".length();
+            int end = lower.indexOf("</location>", start);
+            if (end < 0)
+            {
+                break;
+            }
+            String location = document.substring(start, end).trim()
+                    .replace("&lt;", "<").replace("&gt;", ">").replace("&quot;", "\"").replace("&apos;", "'").replace("&amp;", "&");
+            addEntry(entries, url, location);
+            start = end;
+        }
+    }
+    
+    //entries can be relative to the playlist
+    private void addEntry(List<String> entries, String playlistUrl, String entry)
+    {
+        if (entry == null || entry.trim().length() == 0)
+        {
+            return;
+        }
+        try
+        {
+            URL resolved = new URL(new URL(playlistUrl), entry.trim());
+            String protocol = resolved.getProtocol();
+            if (protocol.equals("http") || protocol.equals("https"))
+            {
+                entries.add(resolved.toString());
+            }
+        }
+        catch (MalformedURLException e)
+        {
+            if (LOCAL_LOGV) log("Skipping entry " + entry, "v");
+        }
+    }
+    
+    /**
+     * @param format format name saved for a station
+     * @return whether the format is a playlist, whose resolved stream url replaces the station url for metadata
+     */
+    public static boolean isPlaylist(String format)
+    {
+        for (AudioType type : AudioType.values())
+        {
+            if (type.toString().equals(format))
+            {
+                return isPlaylistType(type);
+            }
+        }
+        return false;
+    }
+    
+    /**
+     * @param type
+     * @return whether the type is a playlist of streams to resolve, rather than a stream
+     */
+    public static boolean isPlaylistType(AudioType type)
+    {
+        return type.equals(AudioType.M3U) || type.equals(AudioType.PLS) || type.equals(AudioType.XSPF);
+    }
+    
+    //by file extension, from a url or a content disposition
+    static AudioType getTypeFromString(String string)
+    {
+        String name = string.toLowerCase(Locale.US);
+        //extension is before any query or fragment, and not part of the host
+        int cut = name.indexOf('?');
+        if (cut >= 0)
+        {
+            name = name.substring(0, cut);
+        }
+        cut = name.indexOf('#');
+        if (cut >= 0)
+        {
+            name = name.substring(0, cut);
+        }
+        cut = name.indexOf("://");
+        if (cut >= 0)
+        {
+            int path = name.indexOf('/', cut + 3);
+            name = path >= 0 ? name.substring(path) : "";
+        }
+        //disposition filenames can be quoted
+        name = name.replace("\"", "").replace("'", "").trim();
+        int dot = name.lastIndexOf('.');
+        if (dot < 0)
+        {
+            return AudioType.UNKNOWN;
+        }
+        String extension = name.substring(dot + 1);
+        AudioType type = AudioType.UNKNOWN;
+        if (extension.equals("mp3"))
+        {
+            type = AudioType.MP3;
+        }
+        else if (extension.equals("m3u"))
+        {
+            type = AudioType.M3U;
+        }
+        else if (extension.equals("m3u8"))
+        {
+            type = AudioType.M3U8;
+        }
+        else if (extension.equals("pls"))
+        {
+            type = AudioType.PLS;
+        }
+        else if (extension.equals("xspf"))
+        {
+            type = AudioType.XSPF;
+        }
+        else if (extension.equals("aacp"))
+        {
+            type = AudioType.AACP;
+        }
+        else if (extension.equals("aac"))
+        {
+            type = AudioType.AAC;
+        }
+        else if (extension.equals("ogg") || extension.equals("oga"))
+        {
+            type = AudioType.OGG;
+        }
+        else if (extension.equals("flac"))
+        {
+            type = AudioType.FLAC;
+        }
+        return type;
+    }
+    
+    static AudioType getTypeFromContentType(String contentType)
+    {
+        AudioType type = AudioType.UNKNOWN;
+        //ignore parameters like charset
+        int semicolon = contentType.indexOf(';');
+        if (semicolon >= 0)
+        {
+            contentType = contentType.substring(0, semicolon);
+        }
+        contentType = contentType.trim().toLowerCase(Locale.US);
+        if (contentType.equals("audio/x-scpls") || contentType.equals("audio/scpls"))
+        {
+            type = AudioType.PLS;
+        }
+        else if (contentType.equals("audio/mpegurl") || contentType.equals("audio/x-mpegurl"))
+        {
+            type = AudioType.M3U;
+        }
+        else if (contentType.equals("application/vnd.apple.mpegurl") || contentType.equals("application/x-mpegurl"))
+        {
+            type = AudioType.M3U8;
+        }
+        else if (contentType.equals("application/xspf+xml"))
+        {
+            type = AudioType.XSPF;
+        }
+        else if (contentType.equals("audio/mpeg") || contentType.equals("audio/mp3"))
+        {
+            type = AudioType.MP3;
+        }
+        else if (contentType.equals("audio/aac"))
+        {
+            type = AudioType.AAC;
+        }
+        else if (contentType.equals("audio/aacp"))
+        {
+            type = AudioType.AACP;
+        }
+        else if (contentType.equals("audio/ogg") || contentType.equals("application/ogg"))
+        {
+            type = AudioType.OGG;
+        }
+        else if (contentType.equals("audio/flac") || contentType.equals("audio/x-flac"))
+        {
+            type = AudioType.FLAC;
+        }
+        return type;
+    }
+    
+    private static class Response
+    {
+        final HttpURLConnection connection;
+        final BufferedInputStream stream;
+        //whether the body was read to the end, so the connection can be reused
+        boolean drained = false;
+        
+        Response(HttpURLConnection connection, BufferedInputStream stream)
+        {
+            this.connection = connection;
+            this.stream = stream;
+        }
+        
+        void close()
+        {
+            if (!drained)
+            {
+                //might be the audio stream itself, don't read any more of it
+                SharedHttpClient.release(connection);
+                return;
+            }
+            try {
+                stream.close();
+            } catch (IOException e) {
+                SharedHttpClient.release(connection);
+            }
+        }
+    }
+    
+    /**
+     * Error status from the server, e.g. 404 or a full Shoutcast server
+     */
+    public static class StreamHttpException extends HttpException
+    {
+        private static final long serialVersionUID = 2499906481918509156L;
+        private int mResponseCode;
+        private String mResponseMessage;
+        public StreamHttpException(int responseCode, String responseMessage)
+        {
+            this.mResponseCode=responseCode;
+            this.mResponseMessage=responseMessage;
+        }
+        public int getResponseCode()
+        {
+            return mResponseCode;
+        }
+        public String getResponseMessage()
+        {
+            return mResponseMessage;
+        }
+    }
+    
+    private static class ResolverThreadFactory implements ThreadFactory
+    {
+        private final AtomicInteger mCount = new AtomicInteger(1);
+
+        @Override
+        public Thread newThread(Runnable runnable) {
+            Thread thread = new Thread(runnable, TAG + " #" + mCount.getAndIncrement());
+            thread.setDaemon(true);
+            return thread;
+        }
+    }
+    
+    private void log(String text, String level)
+    {
+        mLogger.log(TAG, text, level);
+    }
+}
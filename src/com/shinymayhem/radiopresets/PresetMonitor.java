@@ -0,0 +1,392 @@
+/*
+ * Copyright (C) 2013 Reese Wilson | Shiny Mayhem
+
+   Licensed under the Apache License, Version 2.0 (the "License");
+   you may not use this file except in compliance with the License.
+   You may obtain a copy of the License at
+
+       http://www.apache.org/licenses/LICENSE-2.0
+
+   Unless required by applicable law or agreed to in writing, software
+   distributed under the License is distributed on an "AS IS" BASIS,
+   WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+   See the License for the specific language governing permissions and
+   limitations under the License.
+*/
+package com.shinymayhem.radiopresets;
+
+import java.net.MalformedURLException;
+import java.net.URL;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+import android.content.Context;
+import android.content.Intent;
+import android.content.IntentFilter;
+import android.database.Cursor;
+import android.net.ConnectivityManager;
+import android.os.BatteryManager;
+import android.os.Handler;
+import android.os.HandlerThread;
+import android.os.SystemClock;
+
+import com.shinymayhem.radiometadata.TrackMetadata;
+
+/**
+ * Collects what is playing on every preset in the background, so the station list and widget can show it
+ * without tuning in. Stations on the same host are polled one after another by one worker, so shared
+ * server responses (Icecast, Shoutcast v2) are reused and each host sees one request at a time.
+ * Polling is limited by a global request budget and a per-host minimum interval, and pauses without
+ * a network connection or when the battery is low and not charging
+ * @author Reese Wilson
+ *
+ */
+public class PresetMonitor {
+    private static final boolean LOCAL_LOGV = ActivityMain.LOCAL_LOGV;
+    private static final boolean LOCAL_LOGD = ActivityMain.LOCAL_LOGD;
+    private static final String TAG = "PresetMonitor";
+    
+    public static final long CYCLE_INTERVAL = 60 * 1000;
+    //hosts polled at the same time
+    private static final int MAX_CONCURRENT = 2;
+    //global budget, refilled by one request every BUDGET_REFILL_INTERVAL up to BUDGET_CAPACITY
+    private static final int BUDGET_CAPACITY = 16;
+    private static final long BUDGET_REFILL_INTERVAL = 15 * 1000;
+    //a host isn't polled again sooner than this
+    private static final long HOST_MIN_INTERVAL = 30 * 1000;
+    //pause below this battery level, unless charging
+    private static final int MIN_BATTERY_PERCENT = 30;
+    
+    public interface Listener
+    {
+        /**
+         * A preset is playing something new, called on the creating thread
+         * @param preset preset number
+         * @param track what is playing on it
+         */
+        public void onNowPlaying(int preset, TrackMetadata track);
+    }
+    
+    private final Context mContext;
+    protected ActivityLogger mLogger;
+    private final Listener mListener;
+    //creating thread, for the listener
+    private final Handler mListenerHandler = new Handler();
+    private HandlerThread mThread;
+    private Handler mHandler;
+    private ExecutorService mExecutor;
+    private volatile boolean mRunning = false;
+    
+    //only used on the monitor thread
+    private int mTokens = BUDGET_CAPACITY;
+    private long mLastRefill;
+    private final HashMap<String, Long> mHostPolled = new HashMap<String, Long>();
+    //hosts whose worker hasn't finished yet
+    private final HashSet<String> mHostsInFlight = new HashSet<String>();
+    private final HashMap<Integer, TrackMetadata> mNowPlaying = new HashMap<Integer, TrackMetadata>();
+    private volatile String mPlayingUrl;
+    
+    public PresetMonitor(Context context, Listener listener)
+    {
+        mContext = context.getApplicationContext();
+        mLogger = new ActivityLogger(mContext);
+        mListener = listener;
+    }
+    
+    public void start()
+    {
+        if (mRunning)
+        {
+            return;
+        }
+        if (LOCAL_LOGV) log("start", "v");
+        mRunning = true;
+        mThread = new HandlerThread(TAG, android.os.Process.THREAD_PRIORITY_BACKGROUND);
+        mThread.start();
+        mHandler = new Handler(mThread.getLooper());
+        mExecutor = Executors.newFixedThreadPool(MAX_CONCURRENT);
+        mLastRefill = SystemClock.elapsedRealtime();
+        mHandler.post(mCycle);
+    }
+    
+    public void stop()
+    {
+        if (!mRunning)
+        {
+            return;
+        }
+        if (LOCAL_LOGV) log("stop", "v");
+        mRunning = false;
+        mHandler.removeCallbacks(mCycle);
+        mExecutor.shutdownNow();
+        mThread.quit();
+    }
+    
+    /**
+     * The playing station is already polled by the player, so the monitor skips it
+     * @param url url saved for the playing station, or null if nothing is playing
+     */
+    public void setPlayingUrl(String url)
+    {
+        mPlayingUrl = url;
+    }
+    
+    /**
+     * @param preset preset number
+     * @return last track seen on the preset, or null if it hasn't been polled yet
+     */
+    public TrackMetadata getNowPlaying(int preset)
+    {
+        synchronized (mNowPlaying)
+        {
+            return mNowPlaying.get(preset);
+        }
+    }
+    
+    /**
+     * @return last track seen on each preset that has been polled
+     */
+    public HashMap<Integer, TrackMetadata> getNowPlaying()
+    {
+        synchronized (mNowPlaying)
+        {
+            return new HashMap<Integer, TrackMetadata>(mNowPlaying);
+        }
+    }
+    
+    private final Runnable mCycle = new Runnable() {
+        @Override
+        public void run() {
+            if (!mRunning)
+            {
+                return;
+            }
+            if (shouldPause())
+            {
+                if (LOCAL_LOGV) log("paused", "v");
+            }
+            else
+            {
+                runCycle();
+            }
+            mHandler.postDelayed(this, CYCLE_INTERVAL);
+        }
+    };
+    
+    private void runCycle()
+    {
+        //group presets by host
+        HashMap<String, List<Station>> hosts = new HashMap<String, List<Station>>();
+        HashSet<Integer> presets = new HashSet<Integer>();
+        String[] projection = {
+                DbContractRadio.EntryStation.COLUMN_NAME_PRESET_NUMBER,
+                DbContractRadio.EntryStation.COLUMN_NAME_URL,
+                DbContractRadio.EntryStation.COLUMN_NAME_STREAM_URL
+        };
+        Cursor cursor = mContext.getContentResolver().query(ContentProviderRadio.CONTENT_URI_PRESETS, projection, null, null, DbContractRadio.EntryStation.COLUMN_NAME_PRESET_NUMBER);
+        if (cursor == null)
+        {
+            return;
+        }
+        String playingUrl = mPlayingUrl;
+        while (cursor.moveToNext())
+        {
+            int preset = (int)cursor.getLong(cursor.getColumnIndexOrThrow(DbContractRadio.EntryStation.COLUMN_NAME_PRESET_NUMBER));
+            String stationUrl = cursor.getString(cursor.getColumnIndexOrThrow(DbContractRadio.EntryStation.COLUMN_NAME_URL));
+            presets.add(preset);
+            if (stationUrl == null || stationUrl.equals(playingUrl))
+            {
+                continue;
+            }
+            //playlists have no metadata of their own, poll the stream they resolved to
+            String url = cursor.getString(cursor.getColumnIndexOrThrow(DbContractRadio.EntryStation.COLUMN_NAME_STREAM_URL));
+            if (url == null)
+            {
+                url = stationUrl;
+            }
+            String host;
+            try {
+                host = new URL(url).getHost();
+            } catch (MalformedURLException e) {
+                continue;
+            }
+            List<Station> stations = hosts.get(host);
+            if (stations == null)
+            {
+                stations = new ArrayList<Station>();
+                hosts.put(host, stations);
+            }
+            stations.add(new Station(preset, url));
+        }
+        cursor.close();
+        forgetRemoved(presets);
+        
+        refillBudget();
+        long now = SystemClock.elapsedRealtime();
+        for (Map.Entry<String, List<Station>> entry : hosts.entrySet())
+        {
+            String host = entry.getKey();
+            Long polled = mHostPolled.get(host);
+            if (polled != null && now - polled < HOST_MIN_INTERVAL)
+            {
+                continue;
+            }
+            synchronized (mHostsInFlight)
+            {
+                if (mHostsInFlight.contains(host))
+                {
+                    continue;
+                }
+            }
+            //every station costs a request from the budget, even if the server response ends up shared
+            List<Station> stations = entry.getValue();
+            int count = Math.min(stations.size(), mTokens);
+            if (count == 0)
+            {
+                if (LOCAL_LOGD) log("request budget used up", "d");
+                break;
+            }
+            mTokens -= count;
+            mHostPolled.put(host, now);
+            synchronized (mHostsInFlight)
+            {
+                mHostsInFlight.add(host);
+            }
+            mExecutor.execute(new HostPoll(host, stations.subList(0, count)));
+        }
+    }
+    
+    private void refillBudget()
+    {
+        long now = SystemClock.elapsedRealtime();
+        int earned = (int)((now - mLastRefill) / BUDGET_REFILL_INTERVAL);
+        if (earned > 0)
+        {
+            mTokens = Math.min(BUDGET_CAPACITY, mTokens + earned);
+            mLastRefill += earned * BUDGET_REFILL_INTERVAL;
+        }
+    }
+    
+    private void forgetRemoved(HashSet<Integer> presets)
+    {
+        synchronized (mNowPlaying)
+        {
+            Iterator<Integer> iterator = mNowPlaying.keySet().iterator();
+            while (iterator.hasNext())
+            {
+                if (!presets.contains(iterator.next()))
+                {
+                    iterator.remove();
+                }
+            }
+        }
+    }
+    
+    private boolean shouldPause()
+    {
+        ConnectivityManager network = (ConnectivityManager) mContext.getSystemService(Context.CONNECTIVITY_SERVICE);
+        if (network.getActiveNetworkInfo() == null)
+        {
+            return true;
+        }
+        //sticky broadcast, no receiver needed
+        Intent battery = mContext.registerReceiver(null, new IntentFilter(Intent.ACTION_BATTERY_CHANGED));
+        if (battery == null)
+        {
+            return false;
+        }
+        boolean plugged = battery.getIntExtra(BatteryManager.EXTRA_PLUGGED, 0) != 0;
+        int level = battery.getIntExtra(BatteryManager.EXTRA_LEVEL, -1);
+        int scale = battery.getIntExtra(BatteryManager.EXTRA_SCALE, -1);
+        if (plugged || level < 0 || scale <= 0)
+        {
+            return false;
+        }
+        return level * 100 / scale < MIN_BATTERY_PERCENT;
+    }
+    
+    private void publish(final int preset, final TrackMetadata track)
+    {
+        synchronized (mNowPlaying)
+        {
+            if (track.equals(mNowPlaying.get(preset)))
+            {
+                return;
+            }
+            mNowPlaying.put(preset, track);
+        }
+        if (LOCAL_LOGV) log("preset " + String.valueOf(preset) + " now playing " + track.toString(), "v");
+        mListenerHandler.post(new Runnable() {
+            @Override
+            public void run() {
+                if (mRunning)
+                {
+                    mListener.onNowPlaying(preset, track);
+                }
+            }
+        });
+    }
+    
+    //polls the stations on one host, one after another
+    private class HostPoll implements Runnable
+    {
+        private final String mHost;
+        private final List<Station> mStations;
+        
+        HostPoll(String host, List<Station> stations)
+        {
+            mHost = host;
+            mStations = stations;
+        }
+        
+        @Override
+        public void run() {
+            try
+            {
+                MetadataParser parser = new MetadataParser();
+                for (Station station : mStations)
+                {
+                    if (!mRunning || Thread.currentThread().isInterrupted())
+                    {
+                        break;
+                    }
+                    TrackMetadata track = parser.getMetadata(station.url);
+                    if (!track.isEmpty())
+                    {
+                        publish(station.preset, track);
+                    }
+                }
+            }
+            finally
+            {
+                synchronized (mHostsInFlight)
+                {
+                    mHostsInFlight.remove(mHost);
+                }
+            }
+        }
+    }
+    
+    private static class Station
+    {
+        final int preset;
+        final String url;
+        
+        Station(int preset, String url)
+        {
+            this.preset = preset;
+            this.url = url;
+        }
+    }
+    
+    private void log(String text, String level)
+    {
+        mLogger.log(TAG, text, level);
+    }
+}
@@ -0,0 +1,369 @@
+/*
+ * Copyright (C) 2013 Reese Wilson | Shiny Mayhem
+
+   Licensed under the Apache License, Version 2.0 (the "License");
+   you may not use this file except in compliance with the License.
+   You may obtain a copy of the License at
+
+       http://www.apache.org/licenses/LICENSE-2.0
+
+   Unless required by applicable law or agreed to in writing, software
+   distributed under the License is distributed on an "AS IS" BASIS,
+   WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+   See the License for the specific language governing permissions and
+   limitations under the License.
+*/
+package com.shinymayhem.radiopresets;
+
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.net.InetAddress;
+import java.net.Socket;
+import java.net.URL;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadFactory;
+
+import android.annotation.SuppressLint;
+import android.content.Context;
+import android.net.ConnectivityManager;
+import android.net.NetworkInfo;
+import android.os.Build;
+import android.os.Handler;
+
+import com.shinymayhem.radiopresets.PlaylistResolver.AudioType;
+import com.shinymayhem.radiopresets.PlaylistResolver.StreamHttpException;
+
+/**
+ * Warms up the presets next to the one playing, so next and previous can skip straight to buffering.
+ * Once playback has settled on an unmetered network, each neighbour's url is resolved (unless a recent
+ * stream url is saved), its stream host is looked up, and a connection to the stream is opened and parked
+ * for ProxyStream to pick up. Warm-ups are limited per hour, parked connections are closed after PARK_TIME,
+ * and everything is dropped as soon as something else plays
+ * @author Reese Wilson
+ *
+ */
+public class PresetWarmer {
+    private static final boolean LOCAL_LOGV = ActivityMain.LOCAL_LOGV;
+    private static final boolean LOCAL_LOGD = ActivityMain.LOCAL_LOGD;
+    private static final String TAG = "PresetWarmer";
+    
+    //let the playing stream fill its buffer first
+    public static final long WARM_DELAY = 10 * 1000;
+    //a server drops a connection that isn't read for long, and the audio it buffered goes stale
+    public static final long PARK_TIME = 30 * 1000;
+    //warm-ups allowed per BUDGET_PERIOD. each is a resolve, a lookup and a connection per neighbour
+    public static final int MAX_WARMUPS = 20;
+    public static final long BUDGET_PERIOD = 60 * 60 * 1000;
+    
+    public interface Listener
+    {
+        /**
+         * A neighbour's url was resolved, called on the creating thread
+         * @param stationUrl url saved for the station
+         * @param streamUrl streaming media url
+         * @param format type of the station url, e.g. PLS
+         */
+        public void onResolved(String stationUrl, String streamUrl, AudioType format);
+    }
+    
+    /**
+     * A preset to warm up
+     */
+    public static class Target
+    {
+        private final String mStationUrl;
+        private final String mStreamUrl;
+        
+        /**
+         * @param stationUrl url saved for the station
+         * @param streamUrl saved stream url, or null if the station url needs resolving
+         */
+        public Target(String stationUrl, String streamUrl)
+        {
+            mStationUrl = stationUrl;
+            mStreamUrl = streamUrl;
+        }
+    }
+    
+    private final Context mContext;
+    protected ActivityLogger mLogger;
+    private final Listener mListener;
+    private final Handler mHandler = new Handler();
+    private final ExecutorService mExecutor = Executors.newSingleThreadExecutor(new WarmerThreadFactory());
+    //only used on the creating thread
+    private int mGeneration = 0;
+    private Round mRound;
+    private final LinkedList<Long> mWarmups = new LinkedList<Long>();
+    //stream url -> connection waiting to be used, filled on the warm-up thread
+    private final HashMap<String, Socket> mParked = new HashMap<String, Socket>();
+    
+    private final Runnable mExpire = new Runnable() {
+        @Override
+        public void run() {
+            if (LOCAL_LOGV) log("parked connections expired", "v");
+            closeParked();
+        }
+    };
+    
+    public PresetWarmer(Context context, Listener listener)
+    {
+        mContext = context.getApplicationContext();
+        mLogger = new ActivityLogger(mContext);
+        mListener = listener;
+    }
+    
+    /**
+     * Warm up presets after WARM_DELAY, replacing any earlier warm-up.
+     * Does nothing on a metered network, or when the hour's budget is used up
+     * @param targets neighbouring presets, most likely first
+     */
+    public void warm(List<Target> targets)
+    {
+        cancel();
+        if (targets.isEmpty())
+        {
+            return;
+        }
+        if (!isUnmetered(mContext))
+        {
+            if (LOCAL_LOGV) log("metered network, not warming up", "v");
+            return;
+        }
+        if (!hasBudget())
+        {
+            if (LOCAL_LOGD) log("warm-up budget used up", "d");
+            return;
+        }
+        mGeneration++;
+        mRound = new Round(new ArrayList<Target>(targets), mGeneration);
+        mHandler.postDelayed(mRound, WARM_DELAY);
+    }
+    
+    /**
+     * Take the parked connection for a stream, if there is one. The caller is responsible for closing it
+     * @param streamUrl Streaming media url
+     * @return socket from ProxyStream.connect(), or null
+     */
+    public Socket takeParked(String streamUrl)
+    {
+        synchronized (mParked)
+        {
+            return mParked.remove(streamUrl);
+        }
+    }
+    
+    /**
+     * Stop any warm-up, and close parked connections that weren't taken
+     */
+    public void cancel()
+    {
+        mGeneration++;
+        mHandler.removeCallbacks(mExpire);
+        if (mRound != null)
+        {
+            mHandler.removeCallbacks(mRound);
+            mRound.cancel();
+            mRound = null;
+        }
+        closeParked();
+    }
+    
+    public void shutdown()
+    {
+        cancel();
+        mExecutor.shutdownNow();
+    }
+    
+    /**
+     * @param context
+     * @return whether the active network is wi-fi or ethernet, and not marked as metered (like a phone's hotspot)
+     */
+    @SuppressLint("NewApi")
+    public static boolean isUnmetered(Context context)
+    {
+        ConnectivityManager network = (ConnectivityManager) context.getSystemService(Context.CONNECTIVITY_SERVICE);
+        NetworkInfo info = network.getActiveNetworkInfo();
+        if (info == null || !info.isConnected())
+        {
+            return false;
+        }
+        int type = info.getType();
+        if (type != ConnectivityManager.TYPE_WIFI && type != ConnectivityManager.TYPE_ETHERNET)
+        {
+            return false;
+        }
+        if (Build.VERSION.SDK_INT >= Build.VERSION_CODES.JELLY_BEAN)
+        {
+            return !network.isActiveNetworkMetered();
+        }
+        return true;
+    }
+    
+    //drop warm-ups older than the budget period, and check what's left
+    private boolean hasBudget()
+    {
+        long now = System.currentTimeMillis();
+        while (!mWarmups.isEmpty() && now - mWarmups.getFirst() > BUDGET_PERIOD)
+        {
+            mWarmups.removeFirst();
+        }
+        return mWarmups.size() < MAX_WARMUPS;
+    }
+    
+    private void closeParked()
+    {
+        synchronized (mParked)
+        {
+            for (Socket socket : mParked.values())
+            {
+                ProxyStream.closeQuietly(socket);
+            }
+            mParked.clear();
+        }
+    }
+    
+    private class Round implements Runnable
+    {
+        private final List<Target> mTargets;
+        private final int mGeneration;
+        private final PlaylistResolver mResolver;
+        private Future<?> mFuture;
+        private volatile boolean mCancelled = false;
+        
+        Round(List<Target> targets, int generation)
+        {
+            mTargets = targets;
+            mGeneration = generation;
+            mResolver = new PlaylistResolver(mContext);
+        }
+        
+        //on the creating thread, once the delay is over
+        @Override
+        public void run() {
+            if (mCancelled)
+            {
+                return;
+            }
+            mWarmups.addLast(System.currentTimeMillis());
+            if (LOCAL_LOGD) log("warming up " + String.valueOf(mTargets.size()) + " presets", "d");
+            mFuture = mExecutor.submit(new Runnable() {
+                @Override
+                public void run() {
+                    for (Target target : mTargets)
+                    {
+                        if (mCancelled)
+                        {
+                            return;
+                        }
+                        warmTarget(target);
+                    }
+                    if (!mCancelled)
+                    {
+                        mHandler.postDelayed(mExpire, PARK_TIME);
+                    }
+                }
+            });
+        }
+        
+        void cancel()
+        {
+            mCancelled = true;
+            mResolver.cancel();
+            if (mFuture != null)
+            {
+                mFuture.cancel(true);
+            }
+        }
+        
+        //on the warm-up thread. a failed step ends this target's warm-up, the player will find out properly
+        private void warmTarget(Target target)
+        {
+            String streamUrl = target.mStreamUrl;
+            try
+            {
+                if (streamUrl == null)
+                {
+                    PlaylistResolver.Result result = mResolver.resolve(target.mStationUrl);
+                    AudioType format = result.getFormat();
+                    if (format.equals(AudioType.AAC) || format.equals(AudioType.AACP))
+                    {
+                        return;
+                    }
+                    streamUrl = result.getUrl();
+                    postResolved(target.mStationUrl, streamUrl, format);
+                }
+                if (mCancelled)
+                {
+                    return;
+                }
+                String host = new URL(streamUrl).getHost();
+                InetAddress.getByName(host);
+                if (LOCAL_LOGV) log("looked up " + host, "v");
+                if (mCancelled)
+                {
+                    return;
+                }
+                Socket socket = ProxyStream.connect(streamUrl);
+                synchronized (mParked)
+                {
+                    if (mCancelled)
+                    {
+                        ProxyStream.closeQuietly(socket);
+                        return;
+                    }
+                    ProxyStream.closeQuietly(mParked.put(streamUrl, socket));
+                }
+                if (LOCAL_LOGV) log("parked connection to " + streamUrl, "v");
+            }
+            catch (InterruptedIOException e)
+            {
+                //cancelled
+            }
+            catch (IOException e)
+            {
+                if (LOCAL_LOGD) log("Warm-up failed for " + target.mStationUrl + ": " + e.getMessage(), "d");
+            }
+            catch (StreamHttpException e)
+            {
+                if (LOCAL_LOGD) log("Warm-up failed for " + target.mStationUrl + ": " + String.valueOf(e.getResponseCode()), "d");
+            }
+        }
+        
+        private void postResolved(final String stationUrl, final String streamUrl, final AudioType format)
+        {
+            mHandler.post(new Runnable() {
+                @Override
+                public void run() {
+                    if (mCancelled || mGeneration != PresetWarmer.this.mGeneration)
+                    {
+                        return;
+                    }
+                    mListener.onResolved(stationUrl, streamUrl, format);
+                }
+            });
+        }
+    }
+    
+    private static class WarmerThreadFactory implements ThreadFactory
+    {
+        @Override
+        public Thread newThread(Runnable runnable) {
+            Thread thread = new Thread(runnable, TAG);
+            thread.setDaemon(true);
+            //warm-ups shouldn't compete with the playing stream
+            thread.setPriority(Thread.MIN_PRIORITY);
+            return thread;
+        }
+    }
+    
+    private void log(String text, String level)
+    {
+        mLogger.log(TAG, text, level);
+    }
+}
@@ -0,0 +1,793 @@
+/*
+ * Copyright (C) 2013 Reese Wilson | Shiny Mayhem
+
+   Licensed under the Apache License, Version 2.0 (the "License");
+   you may not use this file except in compliance with the License.
+   You may obtain a copy of the License at
+
+       http://www.apache.org/licenses/LICENSE-2.0
+
+   Unless required by applicable law or agreed to in writing, software
+   distributed under the License is distributed on an "AS IS" BASIS,
+   WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+   See the License for the specific language governing permissions and
+   limitations under the License.
+*/
+package com.shinymayhem.radiopresets;
+
+import java.io.BufferedInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.net.MalformedURLException;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.net.URL;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+
+import javax.net.ssl.HttpsURLConnection;
+import javax.net.ssl.SSLPeerUnverifiedException;
+import javax.net.ssl.SSLSocket;
+import javax.net.ssl.SSLSocketFactory;
+
+import android.util.Log;
+
+import com.shinymayhem.radiometadata.IcyMetadataInputStream;
+import com.shinymayhem.radiometadata.IcyMetadataInputStream.MetadataListener;
+import com.shinymayhem.radiometadata.TrackMetadata;
+
+/**
+ * Local proxy between MediaPlayer and the radio stream. MediaPlayer is pointed at a loopback url.
+ * A pump thread holds the real connection, with in-band metadata turned on, strips the metadata blocks
+ * out and reports them as soon as the server sends them, and writes the audio into a StreamBuffer ring.
+ * The player is served from the ring, so it reads at its own pace, a dropped connection is reconnected
+ * while the player plays what is buffered, and other readers (like a recording) can follow the same audio.
+ * @author Reese Wilson
+ *
+ */
+public class ProxyStream implements Runnable {
+    private static final boolean LOCAL_LOGV = ActivityMain.LOCAL_LOGV;
+    private static final boolean LOCAL_LOGD = ActivityMain.LOCAL_LOGD;
+    private static final String TAG = "ProxyStream";
+
+    private static final int CONNECT_TIMEOUT = 15000;
+    private static final int READ_TIMEOUT = 30000;
+    private static final int MAX_REDIRECTS = 5;
+    private static final int BUFFER_SIZE = 8192;
+    //about half a minute of 128kbps audio
+    public static final int BUFFER_CAPACITY = 512 * 1024;
+    //upstream failures in a row before giving up. each waits a little longer to reconnect
+    private static final int MAX_RECONNECTS = 5;
+    private static final long RECONNECT_DELAY = 1000;
+
+    private final String mUrl;
+    private MetadataListener mListener;
+    private ServerSocket mServer;
+    private Thread mThread;
+    private Thread mPump;
+    private volatile boolean mRunning = false;
+    private volatile boolean mInband = false;
+    //audio bytes passed on to the player, and the stream's bitrate in kbps (0 if the server didn't say)
+    private volatile long mBytesServed = 0;
+    private volatile int mBitrate = 0;
+    //last in-band metadata, kept for a listener that starts paying attention late
+    private volatile TrackMetadata mLastMetadata;
+    private final List<Socket> mSockets = new ArrayList<Socket>();
+    //connection opened ahead of time by PresetWarmer, used by the first session
+    private Socket mParked;
+    
+    private final StreamBuffer mBuffer = new StreamBuffer(BUFFER_CAPACITY);
+    //first upstream response, or a failure. sessions wait for it before answering the player
+    private Response mResponse;
+    private final Object mResponseLock = new Object();
+    //reader of the player's session, and where the next session starts if the player reconnects
+    private volatile StreamBuffer.Reader mPlayerReader;
+    private volatile long mResumePosition = 0;
+
+    /**
+     * @param url Streaming media url
+     */
+    public ProxyStream(String url)
+    {
+        mUrl = url;
+    }
+    
+    /**
+     * @param listener receives metadata from the stream, on the pump thread
+     */
+    public void setMetadataListener(MetadataListener listener)
+    {
+        mListener = listener;
+    }
+    
+    /**
+     * Use an already connected upstream socket, instead of connecting when the proxy starts.
+     * If the server has dropped it by then, a new connection is opened
+     * @param socket socket from connect() for this proxy's url, that nothing has been read from
+     */
+    public void setParkedUpstream(Socket socket)
+    {
+        synchronized (mSockets)
+        {
+            mParked = socket;
+        }
+    }
+
+    /**
+     * Start listening on the loopback interface, and start filling the buffer from the stream
+     * @return url that MediaPlayer should use as a data source
+     * @throws IOException
+     */
+    public String start() throws IOException
+    {
+        mServer = new ServerSocket(0, 8, InetAddress.getByName("127.0.0.1"));
+        mRunning = true;
+        mPump = new Thread(new Runnable() {
+            @Override
+            public void run() {
+                pump();
+            }
+        }, TAG + " pump");
+        mPump.setDaemon(true);
+        mPump.start();
+        mThread = new Thread(this, TAG);
+        mThread.setDaemon(true);
+        mThread.start();
+        String localUrl = "http://127.0.0.1:" + String.valueOf(mServer.getLocalPort()) + "/";
+        if (LOCAL_LOGD) Log.d(TAG, "Proxying " + mUrl + " at " + localUrl);
+        return localUrl;
+    }
+
+    /**
+     * Close the listening socket, the upstream connection and any sessions
+     */
+    public void stop()
+    {
+        mRunning = false;
+        try {
+            if (mServer != null)
+            {
+                mServer.close();
+            }
+        } catch (IOException e) {
+            //closing anyway
+        }
+        synchronized (mSockets)
+        {
+            for (Socket socket : mSockets)
+            {
+                closeQuietly(socket);
+            }
+            mSockets.clear();
+            closeQuietly(mParked);
+            mParked = null;
+        }
+        if (mPump != null)
+        {
+            //in case it is waiting to reconnect
+            mPump.interrupt();
+        }
+        mBuffer.close();
+        respond(null);
+        if (LOCAL_LOGV) Log.v(TAG, "stopped");
+    }
+
+    public boolean isRunning()
+    {
+        return mRunning;
+    }
+
+    /**
+     * @return whether the server is sending metadata inside the stream, so it doesn't need to be polled
+     */
+    public boolean isInband()
+    {
+        return mInband;
+    }
+
+    /**
+     * @return audio bytes passed on to the player so far, not counting metadata blocks
+     */
+    public long getBytesServed()
+    {
+        return mBytesServed;
+    }
+    
+    /**
+     * @return audio bytes in the ring that the player hasn't been sent yet
+     */
+    public long getBufferedBytes()
+    {
+        StreamBuffer.Reader reader = mPlayerReader;
+        long position = reader != null ? reader.getPosition() : mResumePosition;
+        return Math.max(0, mBuffer.getWritten() - Math.max(position, mBuffer.getOldest()));
+    }
+    
+    /**
+     * Audio received for the player, whether it has been sent to it yet or is waiting in the ring.
+     * Metadata that arrives now belongs to the audio after this point
+     * @return bytes served plus bytes buffered
+     */
+    public long getBytesQueued()
+    {
+        return mBytesServed + getBufferedBytes();
+    }
+    
+    /**
+     * Follow the stream's audio alongside the player, e.g. to record it. Falls behind by skipping, never holds the player up
+     * @return stream of the audio received from now on. close it when done
+     */
+    public InputStream openReader()
+    {
+        return mBuffer.openLiveReader();
+    }
+    
+    /**
+     * Repeated metadata blocks aren't reported, so a standby player's title would otherwise stay unknown
+     * until the song changes
+     * @return last metadata the stream sent, or null if none yet
+     */
+    public TrackMetadata getLastMetadata()
+    {
+        return mLastMetadata;
+    }
+    
+    private final MetadataListener mMetadataRecorder = new MetadataListener() {
+        @Override
+        public void onMetadata(TrackMetadata metadata) {
+            mLastMetadata = metadata;
+            if (mListener != null)
+            {
+                mListener.onMetadata(metadata);
+            }
+        }
+    };
+    
+    /**
+     * @return bitrate from the icy-br header in kbps, or 0 if unknown
+     */
+    public int getBitrate()
+    {
+        return mBitrate;
+    }
+    
+    public String getUrl()
+    {
+        return mUrl;
+    }
+
+    @Override
+    public void run() {
+        while (mRunning)
+        {
+            final Socket client;
+            try {
+                client = mServer.accept();
+            } catch (IOException e) {
+                if (mRunning)
+                {
+                    Log.w(TAG, "accept failed");
+                }
+                break;
+            }
+            track(client);
+            Thread session = new Thread(new Runnable() {
+                @Override
+                public void run() {
+                    serve(client);
+                }
+            }, TAG + " session");
+            session.setDaemon(true);
+            session.start();
+        }
+    }
+    
+    //hold the upstream connection, reconnecting when it drops, and fill the ring from it
+    private void pump()
+    {
+        byte[] buffer = new byte[BUFFER_SIZE];
+        boolean connected = false;
+        int failures = 0;
+        try
+        {
+            while (mRunning)
+            {
+                Socket upstream = null;
+                try
+                {
+                    Response response = openResponse();
+                    upstream = response.socket;
+                    if (response.code < 200 || response.code >= 300)
+                    {
+                        if (LOCAL_LOGD) Log.d(TAG, "Upstream response " + String.valueOf(response.code) + " " + response.message);
+                        if (!connected)
+                        {
+                            //the player reports it
+                            respond(response);
+                            return;
+                        }
+                        throw new IOException("Upstream response " + String.valueOf(response.code));
+                    }
+                    InputStream audio = getAudio(response);
+                    if (!connected)
+                    {
+                        connected = true;
+                        respond(response);
+                    }
+                    else
+                    {
+                        if (LOCAL_LOGD) Log.d(TAG, "Reconnected to " + mUrl);
+                    }
+                    int read;
+                    while (mRunning && (read = audio.read(buffer)) != -1)
+                    {
+                        mBuffer.write(buffer, 0, read);
+                        failures = 0;
+                    }
+                    if (mRunning && LOCAL_LOGD) Log.d(TAG, "Upstream ended");
+                }
+                catch (IOException e)
+                {
+                    if (!mRunning)
+                    {
+                        return;
+                    }
+                    if (LOCAL_LOGD) Log.d(TAG, "Upstream failed: " + e.getMessage());
+                    if (!connected)
+                    {
+                        Response failed = new Response();
+                        failed.code = 502;
+                        failed.message = "Bad Gateway";
+                        respond(failed);
+                        return;
+                    }
+                }
+                finally
+                {
+                    closeQuietly(upstream);
+                    untrack(upstream);
+                }
+                //the player keeps playing what is buffered while this reconnects
+                failures++;
+                if (failures > MAX_RECONNECTS)
+                {
+                    Log.w(TAG, "Giving up on " + mUrl);
+                    return;
+                }
+                try
+                {
+                    Thread.sleep(RECONNECT_DELAY * failures);
+                }
+                catch (InterruptedException e)
+                {
+                    return;
+                }
+            }
+        }
+        finally
+        {
+            //players get the end of the stream once the ring is drained
+            mBuffer.close();
+            respond(null);
+        }
+    }
+    
+    //connect, following redirects. the first connection can use the parked socket
+    private Response openResponse() throws IOException
+    {
+        String url = mUrl;
+        for (int i = 0; i <= MAX_REDIRECTS; i++)
+        {
+            Socket upstream = (i == 0) ? takeParked() : null;
+            Response response = null;
+            if (upstream != null)
+            {
+                try
+                {
+                    response = readResponse(new BufferedInputStream(upstream.getInputStream(), BUFFER_SIZE));
+                    if (LOCAL_LOGV) Log.v(TAG, "using parked connection");
+                }
+                catch (IOException e)
+                {
+                    //the server gave up on it while it was parked
+                    if (LOCAL_LOGD) Log.d(TAG, "Parked connection failed: " + e.getMessage());
+                    closeQuietly(upstream);
+                    untrack(upstream);
+                    upstream = null;
+                }
+            }
+            if (upstream == null)
+            {
+                upstream = openUpstream(url);
+                try
+                {
+                    response = readResponse(new BufferedInputStream(upstream.getInputStream(), BUFFER_SIZE));
+                }
+                catch (IOException e)
+                {
+                    closeQuietly(upstream);
+                    untrack(upstream);
+                    throw e;
+                }
+            }
+            response.socket = upstream;
+            String location = response.headers.get("location");
+            if (response.code >= 300 && response.code < 400 && location != null)
+            {
+                if (LOCAL_LOGD) Log.d(TAG, "Redirected to " + location);
+                closeQuietly(upstream);
+                untrack(upstream);
+                url = new URL(new URL(url), location).toString();
+                continue;
+            }
+            return response;
+        }
+        throw new IOException("Too many redirects");
+    }
+    
+    //strip in-band metadata if the server sends it, and note the bitrate
+    private InputStream getAudio(Response response)
+    {
+        InputStream audio = response.body;
+        //each response decides, a reconnect can land on a mirror that doesn't send metadata
+        boolean inband = false;
+        String metaInt = response.headers.get("icy-metaint");
+        if (metaInt != null)
+        {
+            try {
+                int interval = Integer.parseInt(metaInt.trim());
+                if (interval > 0)
+                {
+                    audio = new IcyMetadataInputStream(response.body, interval, mMetadataRecorder);
+                    inband = true;
+                }
+            } catch (NumberFormatException e) {
+                if (LOCAL_LOGD) Log.d(TAG, "Bad icy-metaint:" + metaInt);
+            }
+        }
+        mInband = inband;
+        if (!inband)
+        {
+            if (LOCAL_LOGD) Log.d(TAG, "No in-band metadata for " + mUrl);
+        }
+        int bitrate = parseBitrate(response.headers.get("icy-br"));
+        if (bitrate > 0)
+        {
+            mBitrate = bitrate;
+        }
+        return audio;
+    }
+    
+    //first response only, later ones are reconnects. null if the proxy stopped first
+    private void respond(Response response)
+    {
+        synchronized (mResponseLock)
+        {
+            if (mResponse == null)
+            {
+                mResponse = response != null ? response : new Response();
+                mResponseLock.notifyAll();
+            }
+        }
+    }
+    
+    private Response awaitResponse() throws IOException
+    {
+        synchronized (mResponseLock)
+        {
+            while (mResponse == null)
+            {
+                try
+                {
+                    mResponseLock.wait();
+                }
+                catch (InterruptedException e)
+                {
+                    Thread.currentThread().interrupt();
+                    throw new IOException("Interrupted waiting for the stream");
+                }
+            }
+            return mResponse;
+        }
+    }
+
+    private void serve(Socket client)
+    {
+        StreamBuffer.Reader reader = null;
+        try
+        {
+            InputStream clientIn = new BufferedInputStream(client.getInputStream());
+            //skip request headers, the proxy always serves the same stream
+            String line;
+            do
+            {
+                line = readLine(clientIn);
+            } while (line != null && line.length() > 0);
+
+            OutputStream clientOut = client.getOutputStream();
+            Response response = awaitResponse();
+            if (response.code < 200 || response.code >= 300)
+            {
+                writeStatus(clientOut, response.code > 0 ? response.code : 502, response.code > 0 ? response.message : "Bad Gateway");
+                return;
+            }
+
+            StringBuilder header = new StringBuilder();
+            header.append("HTTP/1.0 200 OK\r\n");
+            String contentType = response.headers.get("content-type");
+            if (contentType != null)
+            {
+                header.append("Content-Type: ").append(contentType).append("\r\n");
+            }
+            header.append("Connection: close\r\n\r\n");
+            clientOut.write(header.toString().getBytes("US-ASCII"));
+
+            //a player that reconnects carries on where it left off
+            reader = mBuffer.openReader(mResumePosition);
+            mPlayerReader = reader;
+            byte[] buffer = new byte[BUFFER_SIZE];
+            int read;
+            while (mRunning && (read = reader.read(buffer)) != -1)
+            {
+                clientOut.write(buffer, 0, read);
+                mBytesServed += read;
+            }
+            clientOut.flush();
+        }
+        catch (IOException e)
+        {
+            //player closed the connection, or the stream ended. MediaPlayer reports the error
+            if (mRunning && LOCAL_LOGD) Log.d(TAG, "Session ended: " + e.getMessage());
+        }
+        finally
+        {
+            if (reader != null)
+            {
+                if (LOCAL_LOGD && reader.getSkipped() > 0) Log.d(TAG, "Player fell behind, skipped " + String.valueOf(reader.getSkipped()) + " bytes");
+                if (mPlayerReader == reader)
+                {
+                    mResumePosition = reader.getPosition();
+                    mPlayerReader = null;
+                }
+                reader.close();
+            }
+            closeQuietly(client);
+            untrack(client);
+        }
+    }
+
+    private Socket openUpstream(String url) throws IOException
+    {
+        Socket socket = connect(url);
+        track(socket);
+        return socket;
+    }
+    
+    private Socket takeParked()
+    {
+        synchronized (mSockets)
+        {
+            Socket socket = mParked;
+            mParked = null;
+            if (socket != null)
+            {
+                mSockets.add(socket);
+            }
+            return socket;
+        }
+    }
+
+    /**
+     * Connect to the stream and send the request, without reading the response
+     * @param url Streaming media url
+     * @return connected socket, positioned at the response's status line
+     * @throws IOException
+     */
+    static Socket connect(String url) throws IOException
+    {
+        URL streamUrl = new URL(url);
+        String protocol = streamUrl.getProtocol();
+        boolean secure = protocol.equals("https");
+        if (!secure && !protocol.equals("http"))
+        {
+            throw new MalformedURLException("Unsupported protocol: " + protocol);
+        }
+        int port = streamUrl.getPort();
+        if (port == -1)
+        {
+            port = secure ? 443 : 80;
+        }
+        String host = streamUrl.getHost();
+        Socket socket;
+        if (secure)
+        {
+            Socket plain = new Socket();
+            plain.connect(new InetSocketAddress(host, port), CONNECT_TIMEOUT);
+            plain.setSoTimeout(READ_TIMEOUT);
+            SSLSocket ssl = (SSLSocket)((SSLSocketFactory)SSLSocketFactory.getDefault()).createSocket(plain, host, port, true);
+            //the factory checks the certificate chain, but not that it belongs to this host
+            try
+            {
+                ssl.startHandshake();
+                if (!HttpsURLConnection.getDefaultHostnameVerifier().verify(host, ssl.getSession()))
+                {
+                    throw new SSLPeerUnverifiedException("Certificate doesn't match " + host);
+                }
+            }
+            catch (IOException e)
+            {
+                closeQuietly(ssl);
+                throw e;
+            }
+            socket = ssl;
+        }
+        else
+        {
+            socket = new Socket();
+            socket.connect(new InetSocketAddress(host, port), CONNECT_TIMEOUT);
+        }
+        socket.setSoTimeout(READ_TIMEOUT);
+
+        String path = streamUrl.getFile();
+        if (path == null || path.length() == 0)
+        {
+            path = "/";
+        }
+        //HTTP/1.0 so the server doesn't use chunked encoding
+        String request = "GET " + path + " HTTP/1.0\r\n" +
+                "Host: " + host + (streamUrl.getPort() == -1 ? "" : ":" + String.valueOf(port)) + "\r\n" +
+                "User-Agent: Mozilla/5.0\r\n" +
+                "Accept: */*\r\n" +
+                "Icy-MetaData: 1\r\n" +
+                "Connection: close\r\n\r\n";
+        try
+        {
+            OutputStream out = socket.getOutputStream();
+            out.write(request.getBytes("US-ASCII"));
+            out.flush();
+        }
+        catch (IOException e)
+        {
+            closeQuietly(socket);
+            throw e;
+        }
+        return socket;
+    }
+
+    //Shoutcast servers answer with "ICY 200 OK" instead of an http status line
+    private Response readResponse(InputStream in) throws IOException
+    {
+        Response response = new Response();
+        response.body = in;
+        String statusLine = readLine(in);
+        if (statusLine == null)
+        {
+            throw new IOException("Empty response");
+        }
+        response.message = statusLine;
+        int codePos = statusLine.indexOf(' ');
+        if (codePos > 0)
+        {
+            int phrasePos = statusLine.indexOf(' ', codePos + 1);
+            if (phrasePos < 0)
+            {
+                phrasePos = statusLine.length();
+            }
+            else
+            {
+                response.message = statusLine.substring(phrasePos + 1);
+            }
+            try {
+                response.code = Integer.parseInt(statusLine.substring(codePos + 1, phrasePos));
+            } catch (NumberFormatException e) { }
+        }
+        String line;
+        while ((line = readLine(in)) != null && line.length() > 0)
+        {
+            int colon = line.indexOf(':');
+            if (colon > 0)
+            {
+                response.headers.put(line.substring(0, colon).trim().toLowerCase(Locale.US), line.substring(colon + 1).trim());
+            }
+        }
+        return response;
+    }
+
+    //some servers send a list like "128,128", the first is the stream's
+    private static int parseBitrate(String header)
+    {
+        if (header == null)
+        {
+            return 0;
+        }
+        int comma = header.indexOf(',');
+        if (comma >= 0)
+        {
+            header = header.substring(0, comma);
+        }
+        try {
+            int bitrate = Integer.parseInt(header.trim());
+            return bitrate > 0 ? bitrate : 0;
+        } catch (NumberFormatException e) {
+            return 0;
+        }
+    }
+
+    private void writeStatus(OutputStream out, int code, String message) throws IOException
+    {
+        String status = "HTTP/1.0 " + String.valueOf(code) + " " + message + "\r\nConnection: close\r\n\r\n";
+        out.write(status.getBytes("US-ASCII"));
+        out.flush();
+    }
+
+    //read a header line byte by byte, so the stream stays positioned at the body
+    private static String readLine(InputStream in) throws IOException
+    {
+        StringBuilder line = new StringBuilder();
+        int b;
+        while ((b = in.read()) != -1)
+        {
+            if (b == '\n')
+            {
+                break;
+            }
+            if (b != '\r')
+            {
+                line.append((char)b);
+            }
+        }
+        if (b == -1 && line.length() == 0)
+        {
+            return null;
+        }
+        return line.toString();
+    }
+
+    private void track(Socket socket)
+    {
+        synchronized (mSockets)
+        {
+            mSockets.add(socket);
+        }
+    }
+
+    private void untrack(Socket socket)
+    {
+        if (socket == null)
+        {
+            return;
+        }
+        synchronized (mSockets)
+        {
+            mSockets.remove(socket);
+        }
+    }
+
+    static void closeQuietly(Socket socket)
+    {
+        if (socket == null)
+        {
+            return;
+        }
+        try {
+            socket.close();
+        } catch (IOException e) {
+            //already closed
+        }
+    }
+
+    private static class Response
+    {
+        int code = -1;
+        String message = "";
+        HashMap<String, String> headers = new HashMap<String, String>();
+        InputStream body;
+        Socket socket;
+    }
+
+}
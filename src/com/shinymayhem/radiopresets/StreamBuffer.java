@@ -0,0 +1,240 @@
+/*
+ * Copyright (C) 2013 Reese Wilson | Shiny Mayhem
+
+   Licensed under the Apache License, Version 2.0 (the "License");
+   you may not use this file except in compliance with the License.
+   You may obtain a copy of the License at
+
+       http://www.apache.org/licenses/LICENSE-2.0
+
+   Unless required by applicable law or agreed to in writing, software
+   distributed under the License is distributed on an "AS IS" BASIS,
+   WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+   See the License for the specific language governing permissions and
+   limitations under the License.
+*/
+package com.shinymayhem.radiopresets;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InterruptedIOException;
+import java.nio.ByteBuffer;
+
+/**
+ * Fixed size ring of stream audio in direct memory. One thread writes what the server sends, and any number of
+ * readers follow at their own pace. The writer never waits for readers: one that falls more than the capacity
+ * behind skips ahead to newer audio, which is what a live stream would have done to it anyway.
+ * Positions are counted in bytes from the start of the stream
+ * @author Reese Wilson
+ *
+ */
+public class StreamBuffer {
+    
+    private final ByteBuffer mBuffer;
+    private final int mCapacity;
+    //total bytes written
+    private long mWritten = 0;
+    private boolean mClosed = false;
+    
+    /**
+     * @param capacity bytes kept, allocated up front
+     */
+    public StreamBuffer(int capacity)
+    {
+        mCapacity = capacity;
+        mBuffer = ByteBuffer.allocateDirect(capacity);
+    }
+    
+    /**
+     * Add audio, overwriting the oldest if the ring is full
+     * @param data
+     * @param offset
+     * @param length
+     */
+    public synchronized void write(byte[] data, int offset, int length)
+    {
+        if (mClosed)
+        {
+            return;
+        }
+        //only the end of a write larger than the ring would be kept
+        if (length > mCapacity)
+        {
+            offset += length - mCapacity;
+            mWritten += length - mCapacity;
+            length = mCapacity;
+        }
+        while (length > 0)
+        {
+            int index = (int)(mWritten % mCapacity);
+            int count = Math.min(length, mCapacity - index);
+            mBuffer.position(index);
+            mBuffer.put(data, offset, count);
+            offset += count;
+            length -= count;
+            mWritten += count;
+        }
+        notifyAll();
+    }
+    
+    /**
+     * No more audio is coming. Readers get the end of the stream once they have read what is left
+     */
+    public synchronized void close()
+    {
+        mClosed = true;
+        notifyAll();
+    }
+    
+    public synchronized boolean isClosed()
+    {
+        return mClosed;
+    }
+    
+    /**
+     * @return total bytes written, which is the position the next write goes to
+     */
+    public synchronized long getWritten()
+    {
+        return mWritten;
+    }
+    
+    /**
+     * @return position of the oldest byte still in the ring
+     */
+    public synchronized long getOldest()
+    {
+        return Math.max(0, mWritten - mCapacity);
+    }
+    
+    public int getCapacity()
+    {
+        return mCapacity;
+    }
+    
+    /**
+     * @param position where to start reading. moved forward to the oldest byte still in the ring if needed
+     * @return reader, which blocks while it is caught up with the writer
+     */
+    public synchronized Reader openReader(long position)
+    {
+        return new Reader(Math.max(position, getOldest()));
+    }
+    
+    /**
+     * @return reader that starts with the next audio written
+     */
+    public synchronized Reader openLiveReader()
+    {
+        return new Reader(mWritten);
+    }
+    
+    private synchronized int read(Reader reader, byte[] data, int offset, int length) throws IOException
+    {
+        if (length == 0)
+        {
+            return 0;
+        }
+        while (reader.mPosition >= mWritten)
+        {
+            if (mClosed || reader.mClosed)
+            {
+                return -1;
+            }
+            try
+            {
+                wait();
+            }
+            catch (InterruptedException e)
+            {
+                Thread.currentThread().interrupt();
+                throw new InterruptedIOException("Interrupted waiting for audio");
+            }
+        }
+        if (reader.mClosed)
+        {
+            return -1;
+        }
+        long oldest = getOldest();
+        if (reader.mPosition < oldest)
+        {
+            //overwritten while the reader was away. leave some room, so the next write doesn't overrun it again
+            long position = oldest + mCapacity / 4;
+            reader.mSkipped += position - reader.mPosition;
+            reader.mPosition = position;
+        }
+        int index = (int)(reader.mPosition % mCapacity);
+        int count = (int)Math.min(length, Math.min(mWritten - reader.mPosition, mCapacity - index));
+        mBuffer.position(index);
+        mBuffer.get(data, offset, count);
+        reader.mPosition += count;
+        return count;
+    }
+    
+    /**
+     * Reads the ring from its own position. Not thread safe, but one reader per thread is fine
+     */
+    public class Reader extends InputStream
+    {
+        private volatile long mPosition;
+        private volatile long mSkipped = 0;
+        private volatile boolean mClosed = false;
+        
+        private Reader(long position)
+        {
+            mPosition = position;
+        }
+        
+        /**
+         * @return position of the next byte this reader returns
+         */
+        public long getPosition()
+        {
+            return mPosition;
+        }
+        
+        /**
+         * @return bytes skipped because the reader fell behind
+         */
+        public long getSkipped()
+        {
+            return mSkipped;
+        }
+        
+        @Override
+        public int read() throws IOException
+        {
+            byte[] single = new byte[1];
+            int read = read(single, 0, 1);
+            return read == -1 ? -1 : single[0] & 0xff;
+        }
+        
+        @Override
+        public int read(byte[] data, int offset, int length) throws IOException
+        {
+            return StreamBuffer.this.read(this, data, offset, length);
+        }
+        
+        @Override
+        public int available()
+        {
+            synchronized (StreamBuffer.this)
+            {
+                return (int)Math.min(mCapacity, Math.max(0, mWritten - Math.max(mPosition, getOldest())));
+            }
+        }
+        
+        /**
+         * Stop reading, waking the reader up if it is waiting
+         */
+        @Override
+        public void close()
+        {
+            mClosed = true;
+            synchronized (StreamBuffer.this)
+            {
+                StreamBuffer.this.notifyAll();
+            }
+        }
+    }
+}
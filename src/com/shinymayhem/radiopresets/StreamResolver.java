@@ -0,0 +1,237 @@
+/*
+ * Copyright (C) 2013 Reese Wilson | Shiny Mayhem
+
+   Licensed under the Apache License, Version 2.0 (the "License");
+   you may not use this file except in compliance with the License.
+   You may obtain a copy of the License at
+
+       http://www.apache.org/licenses/LICENSE-2.0
+
+   Unless required by applicable law or agreed to in writing, software
+   distributed under the License is distributed on an "AS IS" BASIS,
+   WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+   See the License for the specific language governing permissions and
+   limitations under the License.
+*/
+package com.shinymayhem.radiopresets;
+
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.util.concurrent.Future;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import android.content.Context;
+import android.os.Handler;
+
+import com.shinymayhem.radiopresets.PlaylistResolver.AudioType;
+import com.shinymayhem.radiopresets.PlaylistResolver.StreamHttpException;
+
+/**
+ * Resolves station urls to streams on background threads, reporting back on the thread it was created on.
+ * Each play resolution gets a generation id, and starting a new one cancels the one in flight, so flipping
+ * through presets only costs the last station's resolution and an old result never starts playing.
+ * Revalidations run alongside and are never superseded
+ * @author Reese Wilson
+ *
+ */
+public class StreamResolver {
+    private static final boolean LOCAL_LOGV = ActivityMain.LOCAL_LOGV;
+    private static final boolean LOCAL_LOGD = ActivityMain.LOCAL_LOGD;
+    private static final String TAG = "StreamResolver";
+    
+    private static final int MAX_THREADS = 3;
+    
+    public interface Callback
+    {
+        /**
+         * @param stationUrl url that was resolved
+         * @param streamUrl streaming media url
+         * @param format type of the station url, e.g. PLS
+         */
+        public void onResolved(String stationUrl, String streamUrl, AudioType format);
+        
+        /**
+         * @param stationUrl url that was resolved
+         * @param responseCode status code from the server
+         * @param responseMessage status message from the server
+         */
+        public void onHttpError(String stationUrl, int responseCode, String responseMessage);
+        
+        /**
+         * @param stationUrl url that was resolved
+         * @param e what went wrong, e.g. a MalformedURLException
+         */
+        public void onError(String stationUrl, IOException e);
+    }
+    
+    private final Context mContext;
+    protected ActivityLogger mLogger;
+    private final Handler mHandler = new Handler();
+    private final ThreadPoolExecutor mExecutor;
+    //only used on the creating thread
+    private int mGeneration = 0;
+    private Request mCurrent;
+    
+    public StreamResolver(Context context)
+    {
+        mContext = context.getApplicationContext();
+        mLogger = new ActivityLogger(mContext);
+        mExecutor = new ThreadPoolExecutor(MAX_THREADS, MAX_THREADS, 30, TimeUnit.SECONDS,
+                new LinkedBlockingQueue<Runnable>(), new ResolverThreadFactory());
+        mExecutor.allowCoreThreadTimeOut(true);
+    }
+    
+    /**
+     * Resolve a url to play, cancelling the one in flight
+     * @param url station url
+     * @param callback called on the creating thread, unless superseded or cancelled first
+     * @return generation id of the resolution
+     */
+    public int resolve(String url, Callback callback)
+    {
+        cancel();
+        mGeneration++;
+        if (LOCAL_LOGV) log("resolving " + url + ", generation " + String.valueOf(mGeneration), "v");
+        mCurrent = new Request(url, mGeneration, callback);
+        mCurrent.start();
+        return mGeneration;
+    }
+    
+    /**
+     * Resolve a url in the background, without affecting the resolution in flight
+     * @param url station url
+     * @param callback called on the creating thread
+     */
+    public void revalidate(String url, Callback callback)
+    {
+        if (LOCAL_LOGV) log("revalidating " + url, "v");
+        new Request(url, -1, callback).start();
+    }
+    
+    /**
+     * Cancel the play resolution in flight, if any. Its callback won't be called
+     */
+    public void cancel()
+    {
+        if (mCurrent != null)
+        {
+            if (LOCAL_LOGD) log("cancelling generation " + String.valueOf(mCurrent.mGeneration), "d");
+            mCurrent.cancel();
+            mCurrent = null;
+        }
+    }
+    
+    public void shutdown()
+    {
+        cancel();
+        mExecutor.shutdownNow();
+    }
+    
+    private class Request implements Runnable
+    {
+        private final String mUrl;
+        //-1 for revalidations
+        private final int mGeneration;
+        private final Callback mCallback;
+        private final PlaylistResolver mResolver;
+        private Future<?> mFuture;
+        private volatile boolean mCancelled = false;
+        
+        Request(String url, int generation, Callback callback)
+        {
+            mUrl = url;
+            mGeneration = generation;
+            mCallback = callback;
+            mResolver = new PlaylistResolver(mContext);
+        }
+        
+        void start()
+        {
+            mFuture = mExecutor.submit(this);
+        }
+        
+        void cancel()
+        {
+            mCancelled = true;
+            mResolver.cancel();
+            mFuture.cancel(true);
+        }
+        
+        @Override
+        public void run() {
+            try
+            {
+                final PlaylistResolver.Result result = mResolver.resolve(mUrl);
+                post(new Runnable() {
+                    @Override
+                    public void run() {
+                        mCallback.onResolved(mUrl, result.getUrl(), result.getFormat());
+                    }
+                });
+            }
+            catch (final StreamHttpException e)
+            {
+                post(new Runnable() {
+                    @Override
+                    public void run() {
+                        mCallback.onHttpError(mUrl, e.getResponseCode(), e.getResponseMessage());
+                    }
+                });
+            }
+            catch (final IOException e)
+            {
+                if (mCancelled && e instanceof InterruptedIOException)
+                {
+                    return;
+                }
+                post(new Runnable() {
+                    @Override
+                    public void run() {
+                        mCallback.onError(mUrl, e);
+                    }
+                });
+            }
+        }
+        
+        //deliver on the creating thread, dropping results of superseded resolutions
+        private void post(final Runnable delivery)
+        {
+            mHandler.post(new Runnable() {
+                @Override
+                public void run() {
+                    if (mCancelled || (mGeneration != -1 && mGeneration != StreamResolver.this.mGeneration))
+                    {
+                        if (LOCAL_LOGV) log("dropping stale result for " + mUrl, "v");
+                        return;
+                    }
+                    if (mCurrent == Request.this)
+                    {
+                        mCurrent = null;
+                    }
+                    delivery.run();
+                }
+            });
+        }
+    }
+    
+    private static class ResolverThreadFactory implements ThreadFactory
+    {
+        private final AtomicInteger mCount = new AtomicInteger(1);
+
+        @Override
+        public Thread newThread(Runnable runnable) {
+            Thread thread = new Thread(runnable, TAG + " #" + mCount.getAndIncrement());
+            thread.setDaemon(true);
+            return thread;
+        }
+    }
+    
+    private void log(String text, String level)
+    {
+        mLogger.log(TAG, text, level);
+    }
+}
@@ -0,0 +1,259 @@
+/*
+ * Copyright (C) 2013 Reese Wilson | Shiny Mayhem
+
+   Licensed under the Apache License, Version 2.0 (the "License");
+   you may not use this file except in compliance with the License.
+   You may obtain a copy of the License at
+
+       http://www.apache.org/licenses/LICENSE-2.0
+
+   Unless required by applicable law or agreed to in writing, software
+   distributed under the License is distributed on an "AS IS" BASIS,
+   WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+   See the License for the specific language governing permissions and
+   limitations under the License.
+*/
+package com.shinymayhem.radiopresets;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.UnsupportedEncodingException;
+import java.util.Locale;
+
+import com.shinymayhem.radiopresets.PlaylistResolver.AudioType;
+
+/**
+ * Identifies a stream or playlist from its first few kB, by magic bytes for containers,
+ * frame headers for MP3 and ADTS AAC, and leading text for playlists
+ * @author Reese Wilson
+ *
+ */
+public class StreamSniffer {
+    
+    //enough for a typical ID3 tag and a couple of frames, or a playlist header
+    public static final int SNIFF_BYTES = 4096;
+    
+    private static final int[][] MP3_BITRATES = {
+        //MPEG 1, layers I, II, III
+        {0, 32, 64, 96, 128, 160, 192, 224, 256, 288, 320, 352, 384, 416, 448},
+        {0, 32, 48, 56, 64, 80, 96, 112, 128, 160, 192, 224, 256, 320, 384},
+        {0, 32, 40, 48, 56, 64, 80, 96, 112, 128, 160, 192, 224, 256, 320},
+        //MPEG 2 and 2.5, layer I, then layers II and III
+        {0, 32, 48, 56, 64, 80, 96, 112, 128, 144, 160, 176, 192, 224, 256},
+        {0, 8, 16, 24, 32, 40, 48, 56, 64, 80, 96, 112, 128, 144, 160}
+    };
+    private static final int[] MP3_SAMPLE_RATES = {44100, 48000, 32000};
+    
+    private StreamSniffer() {}
+    
+    /**
+     * Read up to SNIFF_BYTES from the stream and identify it. The stream is left where the read stopped,
+     * wrap it in a BufferedInputStream and use mark() and reset() to keep the bytes
+     * @param stream
+     * @return type, or UNKNOWN
+     * @throws IOException
+     */
+    public static AudioType sniff(InputStream stream) throws IOException
+    {
+        byte[] head = new byte[SNIFF_BYTES];
+        int length = 0;
+        int read;
+        while (length < head.length && (read = stream.read(head, length, head.length - length)) != -1)
+        {
+            length += read;
+        }
+        return sniff(head, length);
+    }
+    
+    /**
+     * @param data first bytes of the stream
+     * @param length number of bytes in data
+     * @return type, or UNKNOWN
+     */
+    public static AudioType sniff(byte[] data, int length)
+    {
+        if (length < 4)
+        {
+            return AudioType.UNKNOWN;
+        }
+        if (startsWith(data, length, 0, "OggS"))
+        {
+            return AudioType.OGG;
+        }
+        if (startsWith(data, length, 0, "fLaC"))
+        {
+            return AudioType.FLAC;
+        }
+        int offset = 0;
+        if (startsWith(data, length, 0, "ID3") && length >= 10)
+        {
+            //tag size is syncsafe, 7 bits per byte
+            int size = ((data[6] & 0x7f) << 21) | ((data[7] & 0x7f) << 14) | ((data[8] & 0x7f) << 7) | (data[9] & 0x7f);
+            offset = 10 + size;
+            if (offset >= length)
+            {
+                //only mp3 streams start with an ID3 tag in practice
+                return AudioType.MP3;
+            }
+            if (startsWith(data, length, offset, "fLaC"))
+            {
+                return AudioType.FLAC;
+            }
+        }
+        else
+        {
+            AudioType playlist = sniffText(data, length);
+            if (!playlist.equals(AudioType.UNKNOWN))
+            {
+                return playlist;
+            }
+        }
+        return sniffFrames(data, length, offset);
+    }
+    
+    private static AudioType sniffText(byte[] data, int length)
+    {
+        String text;
+        try {
+            text = new String(data, 0, length, "ISO-8859-1");
+        } catch (UnsupportedEncodingException e) {
+            return AudioType.UNKNOWN;
+        }
+        //skip a UTF-8 byte order mark and leading whitespace
+        int start = 0;
+        if (text.startsWith("\u00ef\u00bb\u00bf"))
+        {
+            start = 3;
+        }
+        while (start < text.length() && Character.isWhitespace(text.charAt(start)))
+        {
+            start++;
+        }
+        text = text.substring(start);
+        String lower = text.toLowerCase(Locale.US);
+        if (lower.startsWith("[playlist]"))
+        {
+            return AudioType.PLS;
+        }
+        if (text.startsWith("#EXTM3U"))
+        {
+            //HLS playlists have tags the player handles itself
+            return text.contains("#EXT-X-") ? AudioType.M3U8 : AudioType.M3U;
+        }
+        if (lower.startsWith("<?xml") || lower.startsWith("<playlist"))
+        {
+            return lower.contains("<playlist") && lower.contains("xspf.org/ns") ? AudioType.XSPF : AudioType.UNKNOWN;
+        }
+        //plain m3u is a list of urls, possibly with comments
+        if (lower.startsWith("http://") || lower.startsWith("https://") || lower.startsWith("#"))
+        {
+            int end = lower.indexOf('\n');
+            String line = (end < 0 ? lower : lower.substring(0, end)).trim();
+            if (line.startsWith("#") || line.indexOf(' ') < 0)
+            {
+                return AudioType.M3U;
+            }
+        }
+        return AudioType.UNKNOWN;
+    }
+    
+    //find a frame header, and check that another one follows where its length says it should
+    private static AudioType sniffFrames(byte[] data, int length, int offset)
+    {
+        for (int i = offset; i + 4 <= length; i++)
+        {
+            if ((data[i] & 0xff) != 0xff || (data[i + 1] & 0xe0) != 0xe0)
+            {
+                continue;
+            }
+            int frameLength = getAdtsFrameLength(data, length, i);
+            if (frameLength > 0 && confirms(data, length, i + frameLength, true))
+            {
+                return AudioType.AAC;
+            }
+            frameLength = getMp3FrameLength(data, length, i);
+            if (frameLength > 0 && confirms(data, length, i + frameLength, false))
+            {
+                return AudioType.MP3;
+            }
+        }
+        return AudioType.UNKNOWN;
+    }
+    
+    //the next header is past the sniffed bytes, or is a valid header of the same kind
+    private static boolean confirms(byte[] data, int length, int next, boolean adts)
+    {
+        if (next + 4 > length)
+        {
+            return next >= length;
+        }
+        return adts ? getAdtsFrameLength(data, length, next) > 0 : getMp3FrameLength(data, length, next) > 0;
+    }
+    
+    private static int getAdtsFrameLength(byte[] data, int length, int i)
+    {
+        //12 bit sync, layer is always 0
+        if (i + 7 > length || (data[i] & 0xff) != 0xff || (data[i + 1] & 0xf6) != 0xf0)
+        {
+            return -1;
+        }
+        int sampleRateIndex = (data[i + 2] & 0x3c) >> 2;
+        if (sampleRateIndex > 12)
+        {
+            return -1;
+        }
+        int frameLength = ((data[i + 3] & 0x03) << 11) | ((data[i + 4] & 0xff) << 3) | ((data[i + 5] & 0xe0) >> 5);
+        return frameLength >= 7 ? frameLength : -1;
+    }
+    
+    private static int getMp3FrameLength(byte[] data, int length, int i)
+    {
+        if (i + 4 > length || (data[i] & 0xff) != 0xff || (data[i + 1] & 0xe0) != 0xe0)
+        {
+            return -1;
+        }
+        int version = (data[i + 1] & 0x18) >> 3; //0 = 2.5, 1 = reserved, 2 = 2, 3 = 1
+        int layer = (data[i + 1] & 0x06) >> 1;   //1 = III, 2 = II, 3 = I
+        int bitrateIndex = (data[i + 2] & 0xf0) >> 4;
+        int sampleRateIndex = (data[i + 2] & 0x0c) >> 2;
+        int padding = (data[i + 2] & 0x02) >> 1;
+        if (version == 1 || layer == 0 || bitrateIndex == 0 || bitrateIndex == 15 || sampleRateIndex == 3)
+        {
+            return -1;
+        }
+        boolean mpeg1 = version == 3;
+        int table = mpeg1 ? 3 - layer : (layer == 3 ? 3 : 4);
+        int bitrate = MP3_BITRATES[table][bitrateIndex] * 1000;
+        int sampleRate = MP3_SAMPLE_RATES[sampleRateIndex];
+        if (version == 2)
+        {
+            sampleRate /= 2;
+        }
+        else if (version == 0)
+        {
+            sampleRate /= 4;
+        }
+        if (layer == 3)
+        {
+            return (12 * bitrate / sampleRate + padding) * 4;
+        }
+        int samples = (layer == 1 && !mpeg1) ? 72 : 144;
+        return samples * bitrate / sampleRate + padding;
+    }
+    
+    private static boolean startsWith(byte[] data, int length, int offset, String magic)
+    {
+        if (offset + magic.length() > length)
+        {
+            return false;
+        }
+        for (int i = 0; i < magic.length(); i++)
+        {
+            if (data[offset + i] != magic.charAt(i))
+            {
+                return false;
+            }
+        }
+        return true;
+    }
+}
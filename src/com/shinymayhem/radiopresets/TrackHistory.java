@@ -0,0 +1,213 @@
+/*
+ * Copyright (C) 2013 Reese Wilson | Shiny Mayhem
+
+   Licensed under the Apache License, Version 2.0 (the "License");
+   you may not use this file except in compliance with the License.
+   You may obtain a copy of the License at
+
+       http://www.apache.org/licenses/LICENSE-2.0
+
+   Unless required by applicable law or agreed to in writing, software
+   distributed under the License is distributed on an "AS IS" BASIS,
+   WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+   See the License for the specific language governing permissions and
+   limitations under the License.
+*/
+package com.shinymayhem.radiopresets;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+import android.content.ContentValues;
+import android.content.Context;
+import android.os.Handler;
+
+import com.shinymayhem.radiometadata.TrackMetadata;
+
+/**
+ * Keeps the last few tracks of each station in memory, and saves every track to the history table.
+ * Tracks are saved in batches, each batch in a single transaction that also removes expired history.
+ * Not thread safe, call from the thread it was created on
+ * @author Reese Wilson
+ *
+ */
+public class TrackHistory {
+    private static final boolean LOCAL_LOGV = ActivityMain.LOCAL_LOGV;
+    private static final String TAG = "TrackHistory";
+    
+    //tracks kept in memory per station
+    public static final int RECENT_SIZE = 20;
+    //save once this many tracks are waiting
+    public static final int FLUSH_BATCH = 10;
+    //save waiting tracks at least this often
+    public static final long FLUSH_INTERVAL = 5 * 60 * 1000;
+    
+    private final Context mContext;
+    protected ActivityLogger mLogger;
+    private final Handler mHandler = new Handler();
+    //one thread, so batches are saved in order
+    private final ExecutorService mExecutor = Executors.newSingleThreadExecutor();
+    private final HashMap<String, Ring> mRecent = new HashMap<String, Ring>();
+    private ArrayList<ContentValues> mPending = new ArrayList<ContentValues>();
+    
+    public TrackHistory(Context context)
+    {
+        mContext = context.getApplicationContext();
+        mLogger = new ActivityLogger(mContext);
+    }
+    
+    /**
+     * Record a track that started playing
+     * @param stationTitle
+     * @param stationUrl url saved for the station
+     * @param track
+     */
+    public void add(String stationTitle, String stationUrl, TrackMetadata track)
+    {
+        if (track == null || track.isEmpty() || stationUrl == null)
+        {
+            return;
+        }
+        long now = System.currentTimeMillis();
+        Ring ring = mRecent.get(stationUrl);
+        if (ring == null)
+        {
+            ring = new Ring(RECENT_SIZE);
+            mRecent.put(stationUrl, ring);
+        }
+        ring.add(new Entry(track, now));
+        
+        ContentValues values = new ContentValues();
+        values.put(DbContractRadio.EntryHistory.COLUMN_NAME_ARTIST, track.getArtist());
+        values.put(DbContractRadio.EntryHistory.COLUMN_NAME_SONG, track.getTitle());
+        values.put(DbContractRadio.EntryHistory.COLUMN_NAME_STATION_TITLE, stationTitle);
+        values.put(DbContractRadio.EntryHistory.COLUMN_NAME_STATION_URL, stationUrl);
+        values.put(DbContractRadio.EntryHistory.COLUMN_NAME_DATE_PLAYED, now);
+        mPending.add(values);
+        if (mPending.size() >= FLUSH_BATCH)
+        {
+            flush();
+        }
+        else if (mPending.size() == 1)
+        {
+            mHandler.postDelayed(mFlush, FLUSH_INTERVAL);
+        }
+    }
+    
+    /**
+     * @param stationUrl url saved for the station
+     * @return tracks played on the station since the service started, newest first
+     */
+    public List<Entry> getRecent(String stationUrl)
+    {
+        Ring ring = mRecent.get(stationUrl);
+        if (ring == null)
+        {
+            return new ArrayList<Entry>();
+        }
+        return ring.getNewestFirst();
+    }
+    
+    /**
+     * Save waiting tracks in the background
+     */
+    public void flush()
+    {
+        mHandler.removeCallbacks(mFlush);
+        if (mPending.isEmpty())
+        {
+            return;
+        }
+        final ContentValues[] batch = mPending.toArray(new ContentValues[mPending.size()]);
+        mPending = new ArrayList<ContentValues>();
+        if (LOCAL_LOGV) log("saving " + String.valueOf(batch.length) + " tracks", "v");
+        mExecutor.execute(new Runnable() {
+            @Override
+            public void run() {
+                mContext.getContentResolver().bulkInsert(ContentProviderRadio.CONTENT_URI_HISTORY, batch);
+            }
+        });
+    }
+    
+    /**
+     * Save waiting tracks and stop the save thread once they are written
+     */
+    public void close()
+    {
+        flush();
+        mExecutor.shutdown();
+    }
+    
+    private final Runnable mFlush = new Runnable() {
+        @Override
+        public void run() {
+            flush();
+        }
+    };
+    
+    public static class Entry
+    {
+        private final TrackMetadata mTrack;
+        private final long mPlayed;
+        
+        Entry(TrackMetadata track, long played)
+        {
+            mTrack = track;
+            mPlayed = played;
+        }
+        
+        public TrackMetadata getTrack()
+        {
+            return mTrack;
+        }
+        
+        /**
+         * @return milliseconds since epoch
+         */
+        public long getPlayed()
+        {
+            return mPlayed;
+        }
+    }
+    
+    //fixed size, overwrites the oldest entry when full
+    private static class Ring
+    {
+        private final Entry[] mEntries;
+        private int mNext = 0;
+        private int mSize = 0;
+        
+        Ring(int capacity)
+        {
+            mEntries = new Entry[capacity];
+        }
+        
+        void add(Entry entry)
+        {
+            mEntries[mNext] = entry;
+            mNext = (mNext + 1) % mEntries.length;
+            if (mSize < mEntries.length)
+            {
+                mSize++;
+            }
+        }
+        
+        List<Entry> getNewestFirst()
+        {
+            List<Entry> entries = new ArrayList<Entry>(mSize);
+            for (int i = 1; i <= mSize; i++)
+            {
+                entries.add(mEntries[(mNext - i + mEntries.length) % mEntries.length]);
+            }
+            return entries;
+        }
+    }
+    
+    private void log(String text, String level)
+    {
+        mLogger.log(TAG, text, level);
+    }
+}